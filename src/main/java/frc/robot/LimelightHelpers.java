@@ -17,12 +17,15 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -197,6 +200,35 @@ public class LimelightHelpers {
 
         @JsonProperty("ts")
         public double ts;
+
+        @JsonProperty("pts")
+        private JsonNode corners_pixels;
+
+        /**
+         * Detected corners in pixels, x and y per corner as in tcornxy. Empty unless the pipeline sends corners.
+         */
+        public double[] getCorners_Pixels() {
+            // [[x, y], ...] or [x, y, ...]
+            var values = new ArrayList<Double>();
+            addNumbers(corners_pixels, values);
+            double[] corners = new double[values.size() - values.size() % 2];
+            for (int i = 0; i < corners.length; i++) {
+                corners[i] = values.get(i);
+            }
+            return corners;
+        }
+
+        private static void addNumbers(JsonNode node, List<Double> values) {
+            if (node == null) {
+                return;
+            }
+            if (node.isNumber()) {
+                values.add(node.asDouble());
+            }
+            for (var child : node) {
+                addNumbers(child, values);
+            }
+        }
         
         public LimelightTarget_Fiducial() {
             cameraPose_TargetSpace = new double[6];
@@ -755,6 +787,13 @@ public class LimelightHelpers {
      * Parses Limelight's JSON results dump into a LimelightResults Object
      */
     public static LimelightResults getLatestResults(String limelightName) {
+        return parseResults(getJSONDump(limelightName));
+    }
+
+    /**
+     * Parses one JSON results dump, e.g. a queued value of the json topic, into a LimelightResults Object
+     */
+    public static LimelightResults parseResults(String json) {
 
         long start = System.nanoTime();
         LimelightHelpers.LimelightResults results = new LimelightHelpers.LimelightResults();
@@ -763,7 +802,7 @@ public class LimelightHelpers {
         }
 
         try {
-            results = mapper.readValue(getJSONDump(limelightName), LimelightResults.class);
+            results = mapper.readValue(json, LimelightResults.class);
         } catch (JsonProcessingException e) {
             System.err.println("lljson error: " + e.getMessage());
         }
@@ -5,24 +5,53 @@
 package frc.robot;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 import org.photonvision.PhotonCamera;
 import org.photonvision.PhotonPoseEstimator;
 import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.targeting.PhotonPipelineResult;
 
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.networktables.DoubleArrayPublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.RawSubscriber;
+import edu.wpi.first.networktables.StringSubscriber;
+import edu.wpi.first.util.datalog.DataLog;
 import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.Commands;
-import frc.robot.statistics.CornerStatistics;
+import frc.robot.estimation.PoseStrategyComparison;
+import frc.robot.ingest.NetworkTablesIngest;
+import frc.robot.ingest.PhotonPacketDecoder;
+import frc.robot.logging.RawSampleRecorder;
+import frc.robot.logging.SampleArchiveWriter;
+import frc.robot.logging.SampleRecorder;
+import frc.robot.server.StatisticsHttpServer;
+import frc.robot.sim.SoakTestMonitor;
+import frc.robot.sim.SyntheticPhotonSource;
+import frc.robot.statistics.NoiseAnalyzer;
+import frc.robot.statistics.NoiseModel;
+import frc.robot.statistics.PoseMergeJoin;
+import frc.robot.statistics.ReprojectionStatistics;
+import frc.robot.statistics.SnapshotFile;
+import frc.robot.statistics.StatisticsRegistry;
 import frc.robot.statistics.TargetStatistics;
 
 public class Robot extends TimedRobot {
@@ -32,6 +61,26 @@ public class Robot extends TimedRobot {
     String limelightCameraName = ""; // e.g. "limelight"
     String customTagLayoutPath = ""; // e.g. "layout.json"
     private final double kBufferLengthSeconds = 20;
+    boolean circularRotationStats = false; // O(1) circular rotation mean/std dev per axis
+    boolean compactSampleStorage = false; // float sample columns for long windows on the roboRIO heap
+    boolean outlierRejection = false; // drop pose samples far from the windowed median (e.g. ambiguous PnP flips)
+    boolean timeWeightedStats = false; // weight pose samples by frame interval so bursts and gaps don't skew the spread
+    double convergenceTolerance = 0; // e.g. 0.1: a statistic stops sampling once the 95% CI of each pose std dev is within +-5% (0 to disable)
+    boolean archiveRawSamples = false; // raw samples go to compressed .vsga archives in the log directory instead of the .wpilog
+    boolean warmStartFromSnapshot = false; // restore buffers saved before a redeploy/brownout (needs the wall clock set by the driver station)
+    boolean pushBasedIngest = false; // process frames from NT listeners as they arrive instead of once per loop
+    boolean rawPhotonDecoding = false; // decode photon rawBytes packets into primitive arrays instead of PhotonPipelineResult objects
+    int statisticsHttpPort = 0; // e.g. 5805: /stats (JSON), /stats.bin and /events (SSE) served off the robot thread (0 to disable)
+    double noiseAnalysisPeriodSeconds = 0; // spectrum and Allan deviation of the buffers every N s, off the main loop (0 to disable)
+    double tagIdleEvictionSeconds = 30; // per-tag stats unseen this long are closed and released (0 to keep)
+    boolean distanceNoiseModel = false; // per-tag noise binned by distance and viewing angle, saved and reloaded across restarts
+    double tagSizeMeters = 0.1524; // outer black border of the tags, for the reprojection error (0 to disable)
+    // photon estimator strategies compared on the same frames, each into "Photon <strategy> Stats"
+    List<PoseStrategy> comparedStrategies = List.of(); // e.g. List.of(PoseStrategy.LOWEST_AMBIGUITY, PoseStrategy.AVERAGE_BEST_TARGETS)
+    double strategyJoinTimeoutSeconds = 0.005; // longest wait for the compared strategies per frame, late estimates apply with the next one
+    // Simulation only: replaces the photon camera with synthetic frames at this rate (0 to disable)
+    double soakTestFramesPerSecond = 0; // e.g. 2000
+    int soakTestTagCount = 8;
     //#################################
 
     PhotonCamera photonCamera;
@@ -39,13 +88,42 @@ public class Robot extends TimedRobot {
 
     AprilTagFieldLayout tagLayout;
 
+    StatisticsRegistry statsRegistry = new StatisticsRegistry();
+    SnapshotFile snapshotFile;
+    NoiseAnalyzer noiseAnalyzer;
+    StatisticsHttpServer httpServer;
+
     HashMap<Integer, TargetStatistics> photonTargetStatsMap;
+    double lastIdleEvictionTimestamp = 0;
     TargetStatistics photonMultitagStats;
     TargetStatistics limelightMegatagStats;
+    PoseMergeJoin photonLimelightJoin; // photon multitag - limelight megatag at the same instant
+    ReprojectionStatistics photonReprojectionStats;
+    NoiseModel photonNoiseModel;
+    // per tag the timestamp of the last frame added to the noise model
+    HashMap<Integer, Double> lastNoiseModelTimestamps = new HashMap<>();
+    double lastNoiseModelPublishTimestamp = 0;
+    double lastNoiseModelSaveTimestamp = 0;
+    PoseStrategyComparison photonStrategyComparison;
 
     NetworkTable photonCameraTable;
     DoubleArrayPublisher photonEstPoseArrayPublisher;
 
+    SyntheticPhotonSource soakTestSource;
+    SoakTestMonitor soakTestMonitor;
+    double soakTestFrameDebt = 0;
+
+    // volatile since push-based ingest records from the NT listener thread
+    volatile SampleRecorder photonSampleRecorder;
+    volatile SampleRecorder limelightSampleRecorder;
+
+    NetworkTablesIngest ingest;
+    Packet photonPacket = new Packet(1);
+    PhotonPacketDecoder photonDecoder = new PhotonPacketDecoder();
+    RawSubscriber photonRawBytesSubscriber;
+    StringSubscriber limelightJsonSubscriber;
+    double lastPhotonEstimateTimestamp = -1;
+
     {
         if (customTagLayoutPath != "") {
             try {
@@ -63,14 +141,35 @@ public class Robot extends TimedRobot {
             photonCamera = new PhotonCamera(photonCameraName);
             photonEstimator = new PhotonPoseEstimator(tagLayout, PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR, photonCamera, new Transform3d());
             photonTargetStatsMap = new HashMap<Integer, TargetStatistics>();
-            photonMultitagStats = new TargetStatistics("Photon Multitag Stats", kBufferLengthSeconds);
+            photonMultitagStats = createTargetStats("Photon Multitag Stats");
+            if (tagSizeMeters > 0) {
+                photonReprojectionStats = new ReprojectionStatistics("Photon Reprojection Stats", kBufferLengthSeconds, tagLayout, tagSizeMeters);
+            }
+            if (distanceNoiseModel) {
+                // 0.5 m x 15 deg cells
+                photonNoiseModel = new NoiseModel("Photon Noise Model", 8, 16, 6);
+            }
+            if (!comparedStrategies.isEmpty()) {
+                photonStrategyComparison = new PoseStrategyComparison(tagLayout, photonCamera, new Transform3d(), comparedStrategies,
+                    strategy -> createTargetStats("Photon "+strategy+" Stats"), strategyJoinTimeoutSeconds);
+            }
 
             photonCameraTable = NetworkTableInstance.getDefault().getTable("photonvision").getSubTable(photonCameraName);
             photonEstPoseArrayPublisher = photonCameraTable.getDoubleArrayTopic("EstPoseArray").publish();
+            if (rawPhotonDecoding) {
+                // same subscription as PhotonCamera's
+                photonRawBytesSubscriber = photonCameraTable.getRawTopic("rawBytes").subscribe("rawBytes", new byte[]{},
+                    PubSubOption.periodic(0.01), PubSubOption.sendAll(true));
+            }
         }
 
         if (limelightCameraName != "") {
-            limelightMegatagStats = new TargetStatistics("Limelight Megatag Stats", kBufferLengthSeconds);
+            limelightMegatagStats = createTargetStats("Limelight Megatag Stats");
+            limelightJsonSubscriber = LimelightHelpers.getLimelightNTTable(limelightCameraName).getStringTopic("json").subscribe("");
+        }
+
+        if (photonCameraName != "" && limelightCameraName != "") {
+            photonLimelightJoin = new PoseMergeJoin("Photon-Limelight Difference Stats", kBufferLengthSeconds, 0.1, 0.5);
         }
     }
 
@@ -78,21 +177,152 @@ public class Robot extends TimedRobot {
     public void robotInit() {
         // DataLogManager.start();
 
-        SmartDashboard.putData("Start Log", Commands.runOnce(()->DataLogManager.start()));
-        SmartDashboard.putData("Stop Log", Commands.runOnce(()->DataLogManager.stop()));
+        if (warmStartFromSnapshot) {
+            try {
+                var path = Filesystem.getOperatingDirectory().toPath().resolve("vision-statistics.snapshot");
+                snapshotFile = new SnapshotFile(path, statsRegistry, 32, 256*1024, kBufferLengthSeconds, Timer.getFPGATimestamp());
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (photonNoiseModel != null) {
+            try {
+                photonNoiseModel.load(noiseModelPath());
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (noiseAnalysisPeriodSeconds > 0) noiseAnalyzer = new NoiseAnalyzer(statsRegistry, noiseAnalysisPeriodSeconds);
+        // decided before any listener runs, so the ingest is never closed under a running handler
+        if (pushBasedIngest && !runsSoakTest()) startIngest();
+        if (statisticsHttpPort > 0) {
+            try {
+                httpServer = new StatisticsHttpServer(statsRegistry, statisticsHttpPort, 0.1);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        SmartDashboard.putData("Start Log", Commands.runOnce(()->startLog()));
+        SmartDashboard.putData("Stop Log", Commands.runOnce(()->stopLog()));
+        SmartDashboard.putData("Reset Convergence", Commands.runOnce(()->statsRegistry.getAll().forEach(TargetStatistics::resetConvergence)));
+    }
+
+    private void startLog() {
+        DataLogManager.start();
+        var log = DataLogManager.getLog();
+        if (photonCameraName != "" && photonSampleRecorder == null) {
+            photonSampleRecorder = createSampleRecorder(log, "Photon Samples");
+        }
+        if (limelightCameraName != "" && limelightSampleRecorder == null) {
+            limelightSampleRecorder = createSampleRecorder(log, "Limelight Samples");
+        }
+    }
+
+    private SampleRecorder createSampleRecorder(DataLog log, String name) {
+        if (archiveRawSamples) {
+            var fileName = name.replace(' ', '-') + "-" + System.currentTimeMillis() + ".vsga";
+            try {
+                return new SampleArchiveWriter(Path.of(DataLogManager.getLogDir()).resolve(fileName));
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return new RawSampleRecorder(log, name);
+    }
+
+    private void stopLog() {
+        var photonRecorder = photonSampleRecorder;
+        var limelightRecorder = limelightSampleRecorder;
+        photonSampleRecorder = null;
+        limelightSampleRecorder = null;
+        // writes the archives' partial blocks, later samples from the NT listeners are ignored
+        if (photonRecorder != null) photonRecorder.close();
+        if (limelightRecorder != null) limelightRecorder.close();
+        DataLogManager.stop();
+    }
+
+    // From here on the statistics are only updated from the NT listener thread.
+    private void startIngest() {
+        ingest = new NetworkTablesIngest(NetworkTableInstance.getDefault());
+        if (photonCameraName != "") {
+            ingest.addTopic(photonCameraTable.getRawTopic("rawBytes"), (value, ntTimestamp) -> {
+                if (rawPhotonDecoding) updatePhotonStats(value.getRaw(), ntTimestamp);
+                else updatePhotonStats(decodePhotonResult(value.getRaw(), ntTimestamp));
+                runStatisticsTasks();
+            });
+        }
+        if (limelightCameraName != "") {
+            ingest.addTopic(LimelightHelpers.getLimelightNTTable(limelightCameraName).getTopic("json"), (value, ntTimestamp) -> {
+                // this queued frame, the topic's latest value may already be a newer one
+                var result = LimelightHelpers.parseResults(value.getString());
+                updateLimelightStats(result, getFiducialCorners(result), getLimelightCaptureTimestamp(result, ntTimestamp));
+                runStatisticsTasks();
+            });
+        }
+    }
+
+    // Same decoding as PhotonCamera.getLatestResult(), from the listener's value instead of the latest entry.
+    private PhotonPipelineResult decodePhotonResult(byte[] data, double ntTimestamp) {
+        var result = new PhotonPipelineResult();
+        photonPacket.clear();
+        photonPacket.setData(data);
+        if (photonPacket.getSize() < 1) return result;
+        result.createFromPacket(photonPacket);
+        result.setTimestampSeconds(ntTimestamp - result.getLatencyMillis() / 1e3);
+        return result;
+    }
+
+    // Snapshot capture and noise analysis copy samples, so they run on the thread updating the statistics.
+    private void runStatisticsTasks() {
+        double now = Timer.getFPGATimestamp();
+        if (snapshotFile != null) snapshotFile.capture(now);
+        if (noiseAnalyzer != null) noiseAnalyzer.poll(now);
+        if (photonNoiseModel != null && now - lastNoiseModelPublishTimestamp >= 1) {
+            lastNoiseModelPublishTimestamp = now;
+            photonNoiseModel.publishNT();
+        }
+        if (photonNoiseModel != null && now - lastNoiseModelSaveTimestamp >= 30) {
+            lastNoiseModelSaveTimestamp = now;
+            photonNoiseModel.saveAsync(noiseModelPath());
+        }
+    }
+
+    private Path noiseModelPath() {
+        return Filesystem.getOperatingDirectory().toPath().resolve("vision-noise.model");
     }
     
     @Override
     public void robotPeriodic() {
         CommandScheduler.getInstance().run();
 
-        if (photonCameraName != "") {
-            updatePhotonStats();
+        if (soakTestSource != null) {
+            runSoakTest();
+        }
+        else if (photonRawBytesSubscriber != null && ingest == null) {
+            var packet = photonRawBytesSubscriber.getAtomic();
+            updatePhotonStats(packet.value, packet.timestamp / 1e6);
+        }
+        else if (photonCameraName != "" && ingest == null) {
+            updatePhotonStats(photonCamera.getLatestResult());
         }
 
-        if (limelightCameraName != "") {
-            updateLimelightStats();
+        if (limelightCameraName != "" && ingest == null) {
+            // the json value together with its NT time, which is FPGA time like the photon timestamps
+            var json = limelightJsonSubscriber.getAtomic();
+            var result = LimelightHelpers.parseResults(json.value);
+            double[] tcornxy = LimelightHelpers.getLimelightNTDoubleArray(limelightCameraName, "tcornxy");
+            updateLimelightStats(result, tcornxy, getLimelightCaptureTimestamp(result, json.timestamp / 1e6));
         }
+
+        // with push-based ingest, these run on the listener thread that owns the statistics
+        if (ingest == null) runStatisticsTasks();
     }
         
     @Override
@@ -102,32 +332,159 @@ public class Robot extends TimedRobot {
     public void teleopPeriodic() {}
     
     @Override
-    public void simulationInit() {}
+    public void simulationInit() {
+        if (runsSoakTest()) {
+            soakTestSource = new SyntheticPhotonSource(soakTestTagCount, soakTestFramesPerSecond, 1234, Timer.getFPGATimestamp())
+                .withNoise(0.01, Math.toRadians(0.5), 0.5)
+                .withOutliers(0.01, 20);
+            soakTestMonitor = new SoakTestMonitor("Soak Test", 5);
+        }
+    }
     
     @Override
     public void simulationPeriodic() {}
 
 
 
-    private void updatePhotonStats() {
-        var result = photonCamera.getLatestResult();
+    // the synthetic frames replace the camera, so robotInit() doesn't also take frames from NT listeners
+    private boolean runsSoakTest() {
+        return isSimulation() && soakTestFramesPerSecond > 0 && photonCameraName != "";
+    }
+
+    private void runSoakTest() {
+        soakTestFrameDebt += soakTestFramesPerSecond * getPeriod();
+        int frames = (int)soakTestFrameDebt;
+        soakTestFrameDebt -= frames;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            updatePhotonStats(soakTestSource.next());
+        }
+        soakTestMonitor.recordFrames(frames, System.nanoTime() - start);
+    }
+
+    void updatePhotonStats(PhotonPipelineResult result) {
         double timestamp = result.getTimestampSeconds();
+        var recorder = photonSampleRecorder;
+        // compared strategies estimate on worker threads while the per-tag stats update here
+        if (photonStrategyComparison != null) photonStrategyComparison.submit(result);
 
         // single-tag stats
         for (var target : result.getTargets()) {
-            String name = "Photon Target("+target.getFiducialId()+") Stats";
-            if (!photonTargetStatsMap.containsKey(target.getFiducialId())) {
-                photonTargetStatsMap.put(target.getFiducialId(), new TargetStatistics(name, kBufferLengthSeconds));
-            }
-            var stats = photonTargetStatsMap.get(target.getFiducialId());
+            var stats = getPhotonTargetStats(target.getFiducialId());
             stats.update(target, timestamp);
+            // deviations from a mean of a few samples would understate the noise
+            var pose = stats.getResult().getPose();
+            if (photonNoiseModel != null && pose.getSummary().getCount() >= 10 && isNewNoiseModelFrame(target.getFiducialId(), timestamp)) {
+                photonNoiseModel.add(target.getBestCameraToTarget(), pose.getTranslationAvg(), pose.getRotationAvg());
+            }
+            if (recorder != null) {
+                recorder.add(target.getFiducialId(), new Pose3d().plus(target.getBestCameraToTarget()), target.getDetectedCorners(), timestamp);
+            }
         }
 
+        evictIdleTargetStats(timestamp);
+        if (photonStrategyComparison != null) photonStrategyComparison.join();
+
         // estimated pose stats (needs tag layout!)
         var estimation = photonEstimator.update(result);
-        if (estimation.isEmpty()) return;
+        if (estimation.isEmpty()) {
+            if (recorder != null) recorder.flush();
+            return;
+        }
         var estimatedPose = estimation.get().estimatedPose;
-        photonMultitagStats.update(estimatedPose, CornerStatistics.allTargetCorners(estimation.get().targetsUsed), timestamp);
+        photonMultitagStats.updateTargets(estimatedPose, estimation.get().targetsUsed, timestamp);
+        if (loadCameraIntrinsics()) photonReprojectionStats.update(estimatedPose, estimation.get().targetsUsed, timestamp);
+        publishPhotonEstimate(estimatedPose, timestamp, recorder);
+    }
+
+    // Same stats from the rawBytes packet decoded into primitive arrays, without the result objects.
+    // Frames without a coprocessor multitag pose need the estimator's fallback, and compared
+    // strategies their own estimators, so those take the PhotonPipelineResult path, as do packets
+    // in a layout the decoder doesn't know.
+    void updatePhotonStats(byte[] packet, double ntTimestamp) {
+        var frame = photonDecoder;
+        if (!frame.decode(packet) || !frame.hasMultiTag() || photonStrategyComparison != null) {
+            updatePhotonStats(decodePhotonResult(packet, ntTimestamp));
+            return;
+        }
+        double timestamp = ntTimestamp - frame.getLatencyMillis() / 1e3;
+        var recorder = photonSampleRecorder;
+        var transforms = frame.getCameraToTargets();
+        var corners = frame.getCorners();
+
+        // single-tag stats
+        for (int t = 0; t < frame.getTargetCount(); t++) {
+            int id = frame.getFiducialId(t);
+            int o = t * PhotonPacketDecoder.kTransformLength;
+            var stats = getPhotonTargetStats(id);
+            stats.update(id, transforms[o], transforms[o+1], transforms[o+2], transforms[o+3], transforms[o+4], transforms[o+5], transforms[o+6],
+                corners, frame.getCornerOffset(t), frame.getCornerCount(t), timestamp);
+            var pose = stats.getResult().getPose();
+            if (photonNoiseModel != null && pose.getSummary().getCount() >= 10 && isNewNoiseModelFrame(id, timestamp)) {
+                photonNoiseModel.add(transforms[o], transforms[o+1], transforms[o+2], transforms[o+3], transforms[o+4], transforms[o+5], transforms[o+6],
+                    pose.getTranslationAvg(), pose.getRotationAvg());
+            }
+            if (recorder != null) {
+                int c = frame.getCornerOffset(t);
+                recorder.add(id, toPose(transforms, o), Arrays.copyOfRange(corners, c * 2, (c + frame.getCornerCount(t)) * 2), timestamp);
+            }
+        }
+
+        evictIdleTargetStats(timestamp);
+
+        // what PhotonPoseEstimator returns for MULTI_TAG_PNP_ON_COPROCESSOR with the identity
+        // robot-to-camera transform, once per result like the estimator
+        if (Math.abs(timestamp - lastPhotonEstimateTimestamp) < 1e-6) {
+            if (recorder != null) recorder.flush();
+            return;
+        }
+        lastPhotonEstimateTimestamp = timestamp;
+        var estimatedPose = toPose(frame.getMultiTagPose(), 0).relativeTo(tagLayout.getOrigin());
+        photonMultitagStats.updateTargets(estimatedPose, frame.getTargetCount(), frame.getFiducialIds(), corners,
+            frame.getCornerOffsets(), frame.getCornerCounts(), timestamp);
+        if (loadCameraIntrinsics()) {
+            photonReprojectionStats.update(estimatedPose, frame.getTargetCount(), frame.getFiducialIds(), corners,
+                frame.getCornerOffsets(), frame.getCornerCounts(), timestamp);
+        }
+        publishPhotonEstimate(estimatedPose, timestamp, recorder);
+    }
+
+    // translation and rotation quaternion from offset
+    private static Pose3d toPose(double[] transform, int offset) {
+        return new Pose3d(
+            new Translation3d(transform[offset], transform[offset+1], transform[offset+2]),
+            new Rotation3d(new Quaternion(transform[offset+3], transform[offset+4], transform[offset+5], transform[offset+6])));
+    }
+
+    // configured from the fields at the start of the class and registered for the snapshot and HTTP server
+    private TargetStatistics createTargetStats(String name) {
+        var stats = new TargetStatistics(name, kBufferLengthSeconds);
+        stats.setCircularRotationStats(circularRotationStats);
+        stats.setCompactStorage(compactSampleStorage);
+        stats.setTimeWeightedStats(timeWeightedStats);
+        stats.setOutlierRejection(outlierRejection);
+        stats.setConvergenceTolerance(convergenceTolerance);
+        statsRegistry.register(stats);
+        return stats;
+    }
+
+    private TargetStatistics getPhotonTargetStats(int fiducialId) {
+        var stats = photonTargetStatsMap.get(fiducialId);
+        if (stats == null) {
+            stats = createTargetStats("Photon Target("+fiducialId+") Stats");
+            photonTargetStatsMap.put(fiducialId, stats);
+        }
+        return stats;
+    }
+
+    private void publishPhotonEstimate(Pose3d estimatedPose, double timestamp, SampleRecorder recorder) {
+        if (photonLimelightJoin != null) photonLimelightJoin.addFirst(estimatedPose, timestamp);
+        if (recorder != null) {
+            // multitag estimates are recorded with id -1, corners come from the per-target samples
+            recorder.add(-1, estimatedPose, (double[])null, timestamp);
+            recorder.flush();
+        }
 
         double[] estPoseArray = {
             estimatedPose.getX(),
@@ -140,12 +497,83 @@ public class Robot extends TimedRobot {
         photonEstPoseArrayPublisher.set(estPoseArray);
     }
 
-    private void updateLimelightStats() {
-        var result = LimelightHelpers.getLatestResults(limelightCameraName);
+    // True once the reprojection stats can be updated. The estimator's robot-to-camera transform is
+    // identity, so the estimated pose is the camera pose.
+    private boolean loadCameraIntrinsics() {
+        if (photonReprojectionStats == null) return false;
+        if (!photonReprojectionStats.hasCameraIntrinsics()) {
+            // published by the coprocessor once the camera is calibrated at the streamed resolution
+            var cameraMatrix = photonCamera.getCameraMatrix();
+            var distCoeffs = photonCamera.getDistCoeffs();
+            if (cameraMatrix.isEmpty()) return false;
+            photonReprojectionStats.setCameraIntrinsics(cameraMatrix.get().getData(), distCoeffs.isPresent() ? distCoeffs.get().getData() : null);
+        }
+        return true;
+    }
+
+    // A repeated frame (the same result read again, or re-published) replaces its sample in the stats
+    // but would be counted twice by the noise model.
+    private boolean isNewNoiseModelFrame(int id, double timestamp) {
+        var last = lastNoiseModelTimestamps.put(id, timestamp);
+        return last == null || last != timestamp;
+    }
+
+    // Closes and releases per-tag stats of tags not seen for a while, they are recreated when the tag is seen again.
+    private void evictIdleTargetStats(double timestamp) {
+        if (tagIdleEvictionSeconds <= 0 || timestamp - lastIdleEvictionTimestamp < 1) return;
+        lastIdleEvictionTimestamp = timestamp;
+
+        var iterator = photonTargetStatsMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            var stats = entry.getValue();
+            if (timestamp - stats.getResult().getTimestampSeconds() <= tagIdleEvictionSeconds) continue;
+
+            iterator.remove();
+            lastNoiseModelTimestamps.remove(entry.getKey());
+            statsRegistry.unregister(stats);
+            stats.close();
+        }
+    }
+
+    // the corners as in tcornxy, from the same frame as the result
+    private void updateLimelightStats(LimelightHelpers.LimelightResults result, double[] tcornxy, double timestamp) {
         var pose = result.targetingResults.getBotPose3d_wpiBlue();
-        double[] tcornxy = LimelightHelpers.getLimelightNTDoubleArray(limelightCameraName, "tcornxy");
-        double timestamp = result.targetingResults.timestamp_LIMELIGHT_publish;
 
         limelightMegatagStats.update(pose, tcornxy, timestamp);
+        if (photonLimelightJoin != null && result.targetingResults.valid) photonLimelightJoin.addSecond(pose, timestamp);
+        var recorder = limelightSampleRecorder;
+        if (recorder != null) {
+            recorder.add(-1, pose, tcornxy, timestamp);
+            recorder.flush();
+        }
+    }
+
+    // The publish time less the camera's reported pipeline and capture latency. The result's own
+    // timestamp is the Limelight's clock, which pose comparisons with photon samples can't use.
+    private static double getLimelightCaptureTimestamp(LimelightHelpers.LimelightResults result, double ntTimestamp) {
+        double latencyMillis = result.targetingResults.latency_pipeline + result.targetingResults.latency_capture;
+        return ntTimestamp - latencyMillis / 1e3;
+    }
+
+    // x, y per corner of every fiducial of a parsed result, one fiducial after another like tcornxy,
+    // since the json topic carries the corners of its own frame
+    private static double[] getFiducialCorners(LimelightHelpers.LimelightResults result) {
+        var fiducials = result.targetingResults.targets_Fiducials;
+        if (fiducials == null) return new double[]{};
+
+        double[][] perFiducial = new double[fiducials.length][];
+        int length = 0;
+        for (int i = 0; i < fiducials.length; i++) {
+            perFiducial[i] = fiducials[i].getCorners_Pixels();
+            length += perFiducial[i].length;
+        }
+        double[] tcornxy = new double[length];
+        int offset = 0;
+        for (var corners : perFiducial) {
+            System.arraycopy(corners, 0, tcornxy, offset, corners.length);
+            offset += corners.length;
+        }
+        return tcornxy;
     }
 }
@@ -0,0 +1,131 @@
+package frc.robot.estimation;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonCamera;
+import org.photonvision.PhotonPoseEstimator;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.statistics.TargetStatistics;
+
+// Runs one PhotonPoseEstimator per strategy on the same decoded frames, concurrently on worker
+// threads, and feeds each estimate to the strategy's own TargetStatistics so their noise can be
+// compared. The results are joined with a deadline: estimates that miss it are applied with the
+// next frame, and a strategy still busy with an older frame skips the new one instead of queueing.
+//
+// submit() and join() must be called from the one thread updating the statistics.
+public class PoseStrategyComparison implements AutoCloseable {
+    private final ExecutorService executor;
+    private final Lane[] lanes;
+    private final long joinTimeoutNanos;
+
+    private static final class Lane {
+        final PhotonPoseEstimator estimator;
+        final TargetStatistics stats;
+        final IntegerPublisher skippedFramesPublisher;
+        Future<Optional<EstimatedRobotPose>> pending;
+        double pendingTimestamp;
+        long skippedFrames = 0;
+
+        Lane(PhotonPoseEstimator estimator, TargetStatistics stats) {
+            this.estimator = estimator;
+            this.stats = stats;
+            skippedFramesPublisher = NetworkTableInstance.getDefault().getTable(stats.getName()).getIntegerTopic("SkippedFrames").publish();
+        }
+    }
+
+    // statsFactory creates (and configures/registers) the statistics of a strategy
+    public PoseStrategyComparison(AprilTagFieldLayout tagLayout, PhotonCamera camera, Transform3d robotToCamera,
+            List<PoseStrategy> strategies, Function<PoseStrategy, TargetStatistics> statsFactory, double joinTimeoutSeconds) {
+        lanes = new Lane[strategies.size()];
+        for (int i = 0; i < lanes.length; i++) {
+            var strategy = strategies.get(i);
+            lanes[i] = new Lane(new PhotonPoseEstimator(tagLayout, strategy, camera, robotToCamera), statsFactory.apply(strategy));
+        }
+        joinTimeoutNanos = (long)(joinTimeoutSeconds * 1e9);
+
+        int threads = Math.max(1, Math.min(lanes.length, Runtime.getRuntime().availableProcessors()));
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "PoseStrategyComparison");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts estimating the frame with every strategy. The result is only read by the estimators.
+    public void submit(PhotonPipelineResult result) {
+        for (var lane : lanes) {
+            if (lane.pending != null) {
+                if (!lane.pending.isDone()) {
+                    lane.skippedFrames++;
+                    lane.skippedFramesPublisher.set(lane.skippedFrames);
+                    continue;
+                }
+                // finished after the last join's deadline
+                apply(lane);
+            }
+            var estimator = lane.estimator;
+            lane.pending = executor.submit(() -> estimator.update(result));
+            lane.pendingTimestamp = result.getTimestampSeconds();
+        }
+    }
+
+    // Applies the estimates that finish within the join timeout, the rest stay pending.
+    public void join() {
+        long deadline = System.nanoTime() + joinTimeoutNanos;
+        for (var lane : lanes) {
+            if (lane.pending == null) continue;
+            try {
+                lane.pending.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                apply(lane);
+            }
+            catch (TimeoutException e) {
+                // applied by a later submit() or join()
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException e) {
+                // a completed future, apply() reports it
+                apply(lane);
+            }
+        }
+    }
+
+    private void apply(Lane lane) {
+        var pending = lane.pending;
+        lane.pending = null;
+        try {
+            var estimation = pending.get();
+            if (estimation.isEmpty()) return;
+            lane.stats.updateTargets(estimation.get().estimatedPose, estimation.get().targetsUsed, lane.pendingTimestamp);
+        }
+        catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (var lane : lanes) lane.skippedFramesPublisher.close();
+    }
+}
@@ -0,0 +1,56 @@
+package frc.robot.ingest;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import edu.wpi.first.networktables.GenericSubscriber;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.Topic;
+
+// Hands camera frames to handlers from NetworkTables value listeners as soon as they arrive, instead
+// of polling once per robot loop. All listeners of an instance run on its single listener thread,
+// so handlers never run concurrently with each other.
+public class NetworkTablesIngest implements AutoCloseable {
+    @FunctionalInterface
+    public interface FrameHandler {
+        // ntTimestampSeconds is the time the value was published, in the robot's FPGA time base
+        void accept(NetworkTableValue value, double ntTimestampSeconds);
+    }
+
+    private final NetworkTableInstance instance;
+    private final List<GenericSubscriber> subscribers = new ArrayList<>();
+    private final List<Integer> listenerHandles = new ArrayList<>();
+
+    public NetworkTablesIngest(NetworkTableInstance instance) {
+        this.instance = instance;
+    }
+
+    public void addTopic(Topic topic, FrameHandler handler) {
+        // sendAll so frames published between listener runs are queued instead of coalesced
+        var subscriber = topic.genericSubscribe(PubSubOption.sendAll(true), PubSubOption.pollStorage(16));
+        int handle = instance.addListener(subscriber, EnumSet.of(NetworkTableEvent.Kind.kValueAll), event -> {
+            var value = event.valueData.value;
+            try {
+                handler.accept(value, value.getTime() / 1e6);
+            }
+            catch (RuntimeException e) {
+                // keep the listener registered if one frame fails to process
+                e.printStackTrace();
+            }
+        });
+        subscribers.add(subscriber);
+        listenerHandles.add(handle);
+    }
+
+    @Override
+    public void close() {
+        for (int handle : listenerHandles) instance.removeListener(handle);
+        for (var subscriber : subscribers) subscriber.close();
+        listenerHandles.clear();
+        subscribers.clear();
+    }
+}
@@ -0,0 +1,155 @@
+package frc.robot.ingest;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Decodes the PhotonVision "rawBytes" result packet straight into reused primitive arrays, instead
+// of PhotonPipelineResult.createFromPacket() building targets, transforms and corner lists per frame.
+// Only what the statistics use is kept: fiducial IDs, best camera-to-target transforms, pose
+// ambiguities, detected corners and the coprocessor multitag pose. The arrays are overwritten by the
+// next decode().
+//
+// PhotonLib 2024 beta layout, big-endian:
+//   double latencyMillis
+//   multitag: boolean present, transform best, transform alt, double bestReprojErr, altReprojErr,
+//             ambiguity, short[32] fiducialIdsUsed (-1 padded)
+//   byte targetCount, per target: double yaw, pitch, area, skew, int fiducialId, transform best,
+//             transform alt, double poseAmbiguity, double[8] minAreaRectCorners,
+//             byte cornerCount, double[cornerCount * 2] detectedCorners
+//   transform: double x, y, z, qw, qx, qy, qz
+public class PhotonPacketDecoder {
+    private static final VarHandle kDouble = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle kInt = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle kShort = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+
+    // doubles of a transform in cameraToTargets / multiTagPose: translation, then rotation quaternion
+    public static final int kTransformLength = 7;
+    private static final int kTransformBytes = kTransformLength * 8;
+    private static final int kMaxMultiTagIds = 32;
+    private static final int kMultiTagBytes = 1 + 2 * kTransformBytes + 3 * 8 + kMaxMultiTagIds * 2;
+    // up to and including the corner count
+    private static final int kTargetFixedBytes = 4 * 8 + 4 + 2 * kTransformBytes + 8 + 8 * 8 + 1;
+
+    private byte[] data;
+    private int position;
+
+    private double latencyMillis;
+    private boolean hasMultiTag;
+    private final double[] multiTagPose = new double[kTransformLength];
+    private final int[] multiTagIds = new int[kMaxMultiTagIds];
+    private int multiTagIdCount;
+
+    private int targetCount;
+    private int[] fiducialIds = new int[8];
+    private double[] poseAmbiguities = new double[8];
+    private double[] cameraToTargets = new double[8 * kTransformLength];
+    // per target its first corner and count in corners, which holds x, y per corner
+    private int[] cornerOffsets = new int[8];
+    private int[] cornerCounts = new int[8];
+    private double[] corners = new double[8 * 4 * 2];
+    private int cornerTotal;
+
+    // False if the packet is empty, cut off or not in this layout (e.g. another PhotonLib version),
+    // then the getters hold no targets.
+    public boolean decode(byte[] packet) {
+        data = packet;
+        position = 0;
+        targetCount = 0;
+        cornerTotal = 0;
+        hasMultiTag = false;
+        multiTagIdCount = 0;
+        if (packet == null || packet.length < 8 + kMultiTagBytes + 1) return false;
+
+        latencyMillis = readDouble();
+
+        boolean present = data[position++] == 1;
+        readTransform(multiTagPose, 0);
+        position += kTransformBytes + 3 * 8; // alt transform, reprojection errors, ambiguity
+        int idCount = 0;
+        for (int i = 0; i < kMaxMultiTagIds; i++) {
+            int id = (short)kShort.get(data, position);
+            position += 2;
+            if (id > -1) multiTagIds[idCount++] = id;
+        }
+
+        int count = data[position++];
+        if (count < 0) return false;
+        ensureTargetCapacity(count);
+        for (int t = 0; t < count; t++) {
+            if (position + kTargetFixedBytes > data.length) return false;
+            position += 4 * 8; // yaw, pitch, area, skew
+            fiducialIds[t] = (int)kInt.get(data, position);
+            position += 4;
+            readTransform(cameraToTargets, t * kTransformLength);
+            position += kTransformBytes; // alt transform
+            poseAmbiguities[t] = readDouble();
+            position += 8 * 8; // min area rect corners
+
+            int targetCorners = data[position++];
+            if (targetCorners < 0 || position + targetCorners * 16 > data.length) return false;
+            ensureCornerCapacity(cornerTotal + targetCorners);
+            cornerOffsets[t] = cornerTotal;
+            cornerCounts[t] = targetCorners;
+            for (int c = 0; c < targetCorners * 2; c++) corners[cornerTotal * 2 + c] = readDouble();
+            cornerTotal += targetCorners;
+        }
+        // PhotonLib sizes the packet by an upper bound, anything left over but zero padding means the layout differs
+        for (int i = position; i < data.length; i++) {
+            if (data[i] != 0) return false;
+        }
+
+        targetCount = count;
+        hasMultiTag = present;
+        multiTagIdCount = present ? idCount : 0;
+        data = null;
+        return true;
+    }
+
+    private double readDouble() {
+        double value = (double)kDouble.get(data, position);
+        position += 8;
+        return value;
+    }
+
+    private void readTransform(double[] into, int offset) {
+        for (int i = 0; i < kTransformLength; i++) into[offset + i] = readDouble();
+    }
+
+    private void ensureTargetCapacity(int count) {
+        if (count <= fiducialIds.length) return;
+        int capacity = Math.max(count, fiducialIds.length * 2);
+        fiducialIds = Arrays.copyOf(fiducialIds, capacity);
+        poseAmbiguities = Arrays.copyOf(poseAmbiguities, capacity);
+        cameraToTargets = Arrays.copyOf(cameraToTargets, capacity * kTransformLength);
+        cornerOffsets = Arrays.copyOf(cornerOffsets, capacity);
+        cornerCounts = Arrays.copyOf(cornerCounts, capacity);
+    }
+
+    private void ensureCornerCapacity(int count) {
+        if (count * 2 > corners.length) corners = Arrays.copyOf(corners, Math.max(count * 2, corners.length * 2));
+    }
+
+    public double getLatencyMillis() {return latencyMillis;}
+    public int getTargetCount() {return targetCount;}
+    public int getFiducialId(int target) {return fiducialIds[target];}
+    public double getPoseAmbiguity(int target) {return poseAmbiguities[target];}
+    public int getCornerOffset(int target) {return cornerOffsets[target];}
+    public int getCornerCount(int target) {return cornerCounts[target];}
+
+    // the first getTargetCount() entries are valid, reused by the next decode()
+    public int[] getFiducialIds() {return fiducialIds;}
+    // kTransformLength doubles per target, the best camera-to-target transform
+    public double[] getCameraToTargets() {return cameraToTargets;}
+    public int[] getCornerOffsets() {return cornerOffsets;}
+    public int[] getCornerCounts() {return cornerCounts;}
+    // x, y per corner, see getCornerOffset()
+    public double[] getCorners() {return corners;}
+
+    // the coprocessor's multitag PnP field-to-camera transform
+    public boolean hasMultiTag() {return hasMultiTag;}
+    public double[] getMultiTagPose() {return multiTagPose;}
+    public int getMultiTagIdCount() {return multiTagIdCount;}
+    public int getMultiTagId(int i) {return multiTagIds[i];}
+}
@@ -0,0 +1,29 @@
+package frc.robot.logging;
+
+// Reads bit fields written by BitWriter.
+final class BitReader {
+    private long[] words;
+    private long position;
+
+    void reset(long[] words) {
+        this.words = words;
+        position = 0;
+    }
+
+    // reads `bits` bits, 1 to 64, as an unsigned value
+    long read(int bits) {
+        int w = (int)(position >>> 6);
+        int offset = (int)(position & 63);
+        position += bits;
+        long value = (words[w] << offset) >>> (64 - bits);
+        if (offset + bits <= 64) return value;
+        return value | (words[w + 1] >>> (128 - offset - bits));
+    }
+
+    boolean readBit() {
+        int w = (int)(position >>> 6);
+        int offset = (int)(position & 63);
+        position++;
+        return ((words[w] << offset) & Long.MIN_VALUE) != 0;
+    }
+}
@@ -0,0 +1,49 @@
+package frc.robot.logging;
+
+import java.util.Arrays;
+
+// Appends bit fields most significant bit first into a fixed array of 64-bit words.
+final class BitWriter {
+    private final long[] words;
+    private int word = 0;
+    private int bitsFree = 64;
+
+    BitWriter(int capacityWords) {
+        words = new long[capacityWords];
+    }
+
+    // writes the low `bits` bits of value, 1 to 64
+    void write(long value, int bits) {
+        if (bits < 64) value &= (1L << bits) - 1;
+        if (bits <= bitsFree) {
+            bitsFree -= bits;
+            words[word] |= value << bitsFree;
+            if (bitsFree == 0) {
+                word++;
+                bitsFree = 64;
+            }
+        }
+        else {
+            int spill = bits - bitsFree;
+            words[word] |= value >>> spill;
+            word++;
+            bitsFree = 64 - spill;
+            words[word] = value << bitsFree;
+        }
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    long[] words() {return words;}
+
+    // words holding written bits, the last one zero-padded
+    int wordCount() {return bitsFree == 64 ? word : word + 1;}
+
+    void clear() {
+        Arrays.fill(words, 0, Math.min(words.length, word + 1), 0);
+        word = 0;
+        bitsFree = 64;
+    }
+}
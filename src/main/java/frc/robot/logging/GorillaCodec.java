@@ -0,0 +1,140 @@
+package frc.robot.logging;
+
+// Gorilla (Pelkonen et al., VLDB 2015) encodings of one series within a block: timestamps as
+// delta-of-deltas in prefix-coded buckets, values as the XOR with the previous value, storing only
+// its meaningful bits and reusing the previous leading/trailing zero window when it fits.
+// Timestamps are microsecond longs; values are double or float bit patterns of `width` bits.
+final class GorillaCodec {
+    private GorillaCodec() {}
+
+    static final class TimestampState {
+        long previous;
+        long previousDelta;
+        boolean first = true;
+
+        void reset() {
+            first = true;
+            previousDelta = 0;
+        }
+    }
+
+    static final class XorState {
+        final int width;
+        long previous;
+        int previousLeading = -1;
+        int previousTrailing;
+        boolean first = true;
+
+        XorState(int width) {
+            this.width = width;
+        }
+
+        void reset() {
+            first = true;
+            previousLeading = -1;
+        }
+    }
+
+    // buckets '10', '110', '1110' with 7, 12 and 20 bit offsets, '1111' with the raw 64 bit value
+    static void writeTimestamp(BitWriter out, TimestampState state, long micros) {
+        if (state.first) {
+            out.write(micros, 64);
+            state.previous = micros;
+            state.first = false;
+            return;
+        }
+        long delta = micros - state.previous;
+        long deltaOfDelta = delta - state.previousDelta;
+        state.previous = micros;
+        state.previousDelta = delta;
+
+        if (deltaOfDelta == 0) {
+            out.writeBit(false);
+        }
+        else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            out.write(0b10, 2);
+            out.write(deltaOfDelta + 63, 7);
+        }
+        else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            out.write(0b110, 3);
+            out.write(deltaOfDelta + 2047, 12);
+        }
+        else if (deltaOfDelta >= -524287 && deltaOfDelta <= 524288) {
+            out.write(0b1110, 4);
+            out.write(deltaOfDelta + 524287, 20);
+        }
+        else {
+            out.write(0b1111, 4);
+            out.write(deltaOfDelta, 64);
+        }
+    }
+
+    static long readTimestamp(BitReader in, TimestampState state) {
+        if (state.first) {
+            state.previous = in.read(64);
+            state.first = false;
+            return state.previous;
+        }
+        long deltaOfDelta;
+        if (!in.readBit()) deltaOfDelta = 0;
+        else if (!in.readBit()) deltaOfDelta = in.read(7) - 63;
+        else if (!in.readBit()) deltaOfDelta = in.read(12) - 2047;
+        else if (!in.readBit()) deltaOfDelta = in.read(20) - 524287;
+        else deltaOfDelta = in.read(64);
+
+        state.previousDelta += deltaOfDelta;
+        state.previous += state.previousDelta;
+        return state.previous;
+    }
+
+    // '0' same value, '10' meaningful bits in the previous window, '11' 5 bit leading zeros,
+    // 5 (float) or 6 (double) bit length - 1, then the meaningful bits
+    static void writeValue(BitWriter out, XorState state, long bits) {
+        if (state.first) {
+            out.write(bits, state.width);
+            state.previous = bits;
+            state.first = false;
+            return;
+        }
+        long xor = bits ^ state.previous;
+        state.previous = bits;
+        if (xor == 0) {
+            out.writeBit(false);
+            return;
+        }
+
+        int leading = Math.min(31, Long.numberOfLeadingZeros(xor) - (64 - state.width));
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (state.previousLeading >= 0 && leading >= state.previousLeading && trailing >= state.previousTrailing) {
+            out.write(0b10, 2);
+            out.write(xor >>> state.previousTrailing, state.width - state.previousLeading - state.previousTrailing);
+        }
+        else {
+            int length = state.width - leading - trailing;
+            out.write(0b11, 2);
+            out.write(leading, 5);
+            out.write(length - 1, state.width == 64 ? 6 : 5);
+            out.write(xor >>> trailing, length);
+            state.previousLeading = leading;
+            state.previousTrailing = trailing;
+        }
+    }
+
+    static long readValue(BitReader in, XorState state) {
+        if (state.first) {
+            state.previous = in.read(state.width);
+            state.first = false;
+            return state.previous;
+        }
+        if (!in.readBit()) return state.previous;
+
+        if (in.readBit()) {
+            state.previousLeading = (int)in.read(5);
+            int length = (int)in.read(state.width == 64 ? 6 : 5) + 1;
+            state.previousTrailing = state.width - state.previousLeading - length;
+        }
+        int length = state.width - state.previousLeading - state.previousTrailing;
+        state.previous ^= in.read(length) << state.previousTrailing;
+        return state.previous;
+    }
+}
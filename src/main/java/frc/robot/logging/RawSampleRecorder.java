@@ -0,0 +1,114 @@
+package frc.robot.logging;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.photonvision.targeting.TargetCorner;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.RawLogEntry;
+
+// Records raw vision samples as packed struct arrays so statistics can be recomputed offline.
+// Samples added during a frame are batched and written with a single append on flush(). Add, flush
+// and close may run on different threads (an NT listener and the robot thread).
+public class RawSampleRecorder implements SampleRecorder {
+    public static final String kStructName = "VisionSample";
+    public static final String kSchema =
+        "int32 id;double timestamp;double x;double y;double z;double qw;double qx;double qy;double qz;"
+        + "float cornerX[4];float cornerY[4]";
+    public static final int kCornersPerSample = 4;
+    public static final int kSampleBytes = 4 + 9*8 + 2*kCornersPerSample*4;
+    public static final int kMaxSamplesPerFrame = 64;
+
+    private final RawLogEntry entry;
+    private final ByteBuffer frameBuffer =
+        ByteBuffer.allocate(kSampleBytes * kMaxSamplesPerFrame).order(ByteOrder.LITTLE_ENDIAN);
+    private int frameSamples = 0;
+    private double frameTimestamp = 0;
+    private double lastFlushTimestamp = Double.NEGATIVE_INFINITY;
+    // samples are ignored once closed, e.g. from an NT listener still recording after the log stopped
+    private boolean closed = false;
+
+    public RawSampleRecorder(DataLog log, String name) {
+        log.addSchema("struct:" + kStructName, "structschema", kSchema);
+        entry = new RawLogEntry(log, name, "", "struct:" + kStructName + "[]");
+    }
+
+    @Override
+    public synchronized void add(int id, Pose3d pose, List<TargetCorner> corners, double timestamp) {
+        if (!beginSample(id, pose, timestamp)) return;
+
+        for (int i = 0; i < kCornersPerSample; i++) {
+            frameBuffer.putFloat(corners != null && i < corners.size() ? (float)corners.get(i).x : Float.NaN);
+        }
+        for (int i = 0; i < kCornersPerSample; i++) {
+            frameBuffer.putFloat(corners != null && i < corners.size() ? (float)corners.get(i).y : Float.NaN);
+        }
+    }
+
+    // corner lists longer than kCornersPerSample are split across samples sharing id/pose/timestamp
+    @Override
+    public synchronized void add(int id, Pose3d pose, double[] tcornxy, double timestamp) {
+        int cornerCount = tcornxy == null ? 0 : tcornxy.length / 2;
+        int offset = 0;
+        do {
+            if (!beginSample(id, pose, timestamp)) return;
+
+            for (int i = 0; i < kCornersPerSample; i++) {
+                int c = offset + i;
+                frameBuffer.putFloat(c < cornerCount ? (float)tcornxy[c*2] : Float.NaN);
+            }
+            for (int i = 0; i < kCornersPerSample; i++) {
+                int c = offset + i;
+                frameBuffer.putFloat(c < cornerCount ? (float)tcornxy[c*2+1] : Float.NaN);
+            }
+            offset += kCornersPerSample;
+        } while (offset < cornerCount);
+    }
+
+    private boolean beginSample(int id, Pose3d pose, double timestamp) {
+        if (closed || pose == null || frameSamples >= kMaxSamplesPerFrame) return false;
+
+        var q = pose.getRotation().getQuaternion();
+        frameBuffer.putInt(id);
+        frameBuffer.putDouble(timestamp);
+        frameBuffer.putDouble(pose.getX());
+        frameBuffer.putDouble(pose.getY());
+        frameBuffer.putDouble(pose.getZ());
+        frameBuffer.putDouble(q.getW());
+        frameBuffer.putDouble(q.getX());
+        frameBuffer.putDouble(q.getY());
+        frameBuffer.putDouble(q.getZ());
+        frameSamples++;
+        frameTimestamp = Math.max(frameTimestamp, timestamp);
+        return true;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (closed || frameSamples == 0) return;
+
+        // the same latest result can be polled repeatedly, only record new frames. Entries are stamped
+        // with the frame's capture time (FPGA seconds, the log's time base) so they line up with the
+        // rest of the log.
+        if (frameTimestamp > lastFlushTimestamp) {
+            entry.append(frameBuffer.array(), 0, frameBuffer.position(), (long)(frameTimestamp * 1e6));
+            lastFlushTimestamp = frameTimestamp;
+        }
+        frameBuffer.clear();
+        frameSamples = 0;
+        frameTimestamp = 0;
+    }
+
+    // Call before the log is stopped. Samples added since the last flush() are dropped.
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        frameBuffer.clear();
+        frameSamples = 0;
+        entry.finish();
+    }
+}
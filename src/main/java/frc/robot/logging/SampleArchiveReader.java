@@ -0,0 +1,96 @@
+package frc.robot.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams the blocks of a SampleArchiveWriter archive. Each nextBlock() decodes one block of a
+// single fiducial ID into reused primitive columns, so reading allocates nothing per sample. Blocks
+// are in write order: timestamps ascend within a block and within one ID, not across IDs.
+public class SampleArchiveReader implements AutoCloseable {
+    // columns of getColumn()
+    public static final int kX = 0, kY = 1, kZ = 2, kQW = 3, kQX = 4, kQY = 5, kQZ = 6;
+    public static final int kCornerX = 7; // + corner index
+    public static final int kCornerY = kCornerX + SampleArchiveWriter.kCornersPerSample;
+    public static final int kColumns = SampleArchiveWriter.kPoseColumns + SampleArchiveWriter.kCornerColumns;
+
+    private final FileChannel channel;
+    private final ByteBuffer input = ByteBuffer.allocateDirect(1 << 20).flip();
+    private final int samplesPerBlock;
+
+    private final long[] words = new long[SampleArchiveWriter.kMaxBlockWords];
+    private final BitReader bits = new BitReader();
+    private final GorillaCodec.TimestampState timestampState = new GorillaCodec.TimestampState();
+    private final GorillaCodec.XorState[] valueStates = new GorillaCodec.XorState[kColumns];
+
+    private int id;
+    private int sampleCount = 0;
+    private final double[] timestamps;
+    private final double[][] columns;
+
+    public SampleArchiveReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        if (!ensure(12) || input.getInt() != SampleArchiveWriter.kMagic || input.getInt() != SampleArchiveWriter.kVersion) {
+            channel.close();
+            throw new IOException("Not a version " + SampleArchiveWriter.kVersion + " sample archive: " + path);
+        }
+        samplesPerBlock = input.getInt();
+        timestamps = new double[samplesPerBlock];
+        columns = new double[kColumns][samplesPerBlock];
+        for (int c = 0; c < kColumns; c++) valueStates[c] = new GorillaCodec.XorState(c < SampleArchiveWriter.kPoseColumns ? 64 : 32);
+    }
+
+    private boolean ensure(int bytes) throws IOException {
+        while (input.remaining() < bytes) {
+            input.compact();
+            int read = channel.read(input);
+            input.flip();
+            if (read < 0) return false;
+        }
+        return true;
+    }
+
+    // Decodes the next block, false at the end of the archive (or a block cut off by a crash).
+    public boolean nextBlock() throws IOException {
+        sampleCount = 0;
+        if (!ensure(SampleArchiveWriter.kBlockHeaderBytes)) return false;
+        int blockId = input.getInt();
+        int count = input.getInt();
+        int wordCount = input.getInt();
+        if (count < 0 || count > samplesPerBlock || wordCount < 0 || wordCount > words.length) {
+            throw new IOException("Corrupt sample archive block");
+        }
+        if (!ensure(wordCount * 8)) return false;
+        input.asLongBuffer().get(words, 0, wordCount);
+        input.position(input.position() + wordCount * 8);
+
+        bits.reset(words);
+        timestampState.reset();
+        for (var state : valueStates) state.reset();
+        for (int s = 0; s < count; s++) {
+            timestamps[s] = GorillaCodec.readTimestamp(bits, timestampState) / 1e6;
+            for (int c = 0; c < SampleArchiveWriter.kPoseColumns; c++) {
+                columns[c][s] = Double.longBitsToDouble(GorillaCodec.readValue(bits, valueStates[c]));
+            }
+            for (int c = SampleArchiveWriter.kPoseColumns; c < kColumns; c++) {
+                columns[c][s] = Float.intBitsToFloat((int)GorillaCodec.readValue(bits, valueStates[c]));
+            }
+        }
+        id = blockId;
+        sampleCount = count;
+        return true;
+    }
+
+    public int getId() {return id;}
+    public int getSampleCount() {return sampleCount;}
+    // the first getSampleCount() entries are valid, the arrays are reused by the next block
+    public double[] getTimestamps() {return timestamps;}
+    public double[] getColumn(int column) {return columns[column];}
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
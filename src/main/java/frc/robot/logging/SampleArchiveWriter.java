@@ -0,0 +1,201 @@
+package frc.robot.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.photonvision.targeting.TargetCorner;
+
+import edu.wpi.first.math.geometry.Pose3d;
+
+// Records raw vision samples to a compressed archive instead of the DataLog. Each fiducial ID is
+// its own series, cut into blocks of up to kSamplesPerBlock samples encoded with GorillaCodec:
+// timestamps (microseconds) as delta-of-deltas, pose doubles and corner floats XOR-compressed.
+// Blocks are written on a background thread. Read back with SampleArchiveReader.
+//
+// File: int magic, int version, int samplesPerBlock, then blocks of
+// int id, int sampleCount, int wordCount, long[wordCount] bits (big-endian).
+public class SampleArchiveWriter implements SampleRecorder {
+    public static final int kMagic = 0x56534741; // "VSGA"
+    public static final int kVersion = 1;
+    public static final int kSamplesPerBlock = 256;
+    public static final int kCornersPerSample = 4;
+    public static final int kMaxSamplesPerFrame = 64;
+    static final int kPoseColumns = 7;
+    static final int kCornerColumns = 2 * kCornersPerSample;
+    // worst case: timestamp '1111' + 64, doubles '11' + 5 + 6 + 64, floats '11' + 5 + 5 + 32
+    static final int kMaxBlockWords = (kSamplesPerBlock * (68 + kPoseColumns * 77 + kCornerColumns * 44) + 63) / 64;
+    static final int kBlockHeaderBytes = 12;
+
+    private final FileChannel channel;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "SampleArchiveWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Integer, Series> series = new HashMap<>();
+
+    // samples of the current frame as rows of {timestamp, x, y, z, qw, qx, qy, qz, cornerX[4], cornerY[4]}
+    private final int[] frameIds = new int[kMaxSamplesPerFrame];
+    private final double[][] frameRows = new double[kMaxSamplesPerFrame][1 + kPoseColumns + kCornerColumns];
+    private int frameSamples = 0;
+    private double frameTimestamp = 0;
+    private double lastFlushTimestamp = Double.NEGATIVE_INFINITY;
+    // samples are ignored once closed, e.g. from an NT listener still recording
+    private boolean closed = false;
+
+    private static final class Series {
+        final int id;
+        final BitWriter bits = new BitWriter(kMaxBlockWords);
+        final GorillaCodec.TimestampState timestamps = new GorillaCodec.TimestampState();
+        final GorillaCodec.XorState[] values = new GorillaCodec.XorState[kPoseColumns + kCornerColumns];
+        int count = 0;
+
+        Series(int id) {
+            this.id = id;
+            for (int c = 0; c < values.length; c++) values[c] = new GorillaCodec.XorState(c < kPoseColumns ? 64 : 32);
+        }
+
+        void append(double[] row) {
+            GorillaCodec.writeTimestamp(bits, timestamps, Math.round(row[0] * 1e6));
+            for (int c = 0; c < kPoseColumns; c++) {
+                GorillaCodec.writeValue(bits, values[c], Double.doubleToRawLongBits(row[1 + c]));
+            }
+            for (int c = kPoseColumns; c < values.length; c++) {
+                GorillaCodec.writeValue(bits, values[c], Float.floatToRawIntBits((float)row[1 + c]) & 0xFFFFFFFFL);
+            }
+            count++;
+        }
+
+        ByteBuffer takeBlock() {
+            int words = bits.wordCount();
+            var block = ByteBuffer.allocate(kBlockHeaderBytes + words * 8);
+            block.putInt(id).putInt(count).putInt(words);
+            block.asLongBuffer().put(bits.words(), 0, words);
+            block.position(block.capacity());
+            bits.clear();
+            timestamps.reset();
+            for (var state : values) state.reset();
+            count = 0;
+            return block;
+        }
+    }
+
+    public SampleArchiveWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        var header = ByteBuffer.allocate(12).putInt(kMagic).putInt(kVersion).putInt(kSamplesPerBlock).flip();
+        while (header.hasRemaining()) channel.write(header);
+    }
+
+    @Override
+    public synchronized void add(int id, Pose3d pose, List<TargetCorner> corners, double timestamp) {
+        var row = beginSample(id, pose, timestamp);
+        if (row == null) return;
+
+        for (int i = 0; i < kCornersPerSample; i++) {
+            boolean present = corners != null && i < corners.size();
+            row[1 + kPoseColumns + i] = present ? corners.get(i).x : Double.NaN;
+            row[1 + kPoseColumns + kCornersPerSample + i] = present ? corners.get(i).y : Double.NaN;
+        }
+    }
+
+    @Override
+    public synchronized void add(int id, Pose3d pose, double[] tcornxy, double timestamp) {
+        int cornerCount = tcornxy == null ? 0 : tcornxy.length / 2;
+        int offset = 0;
+        do {
+            var row = beginSample(id, pose, timestamp);
+            if (row == null) return;
+
+            for (int i = 0; i < kCornersPerSample; i++) {
+                int c = offset + i;
+                row[1 + kPoseColumns + i] = c < cornerCount ? tcornxy[c*2] : Double.NaN;
+                row[1 + kPoseColumns + kCornersPerSample + i] = c < cornerCount ? tcornxy[c*2+1] : Double.NaN;
+            }
+            offset += kCornersPerSample;
+        } while (offset < cornerCount);
+    }
+
+    private double[] beginSample(int id, Pose3d pose, double timestamp) {
+        if (closed || pose == null || frameSamples >= kMaxSamplesPerFrame) return null;
+
+        var q = pose.getRotation().getQuaternion();
+        frameIds[frameSamples] = id;
+        var row = frameRows[frameSamples];
+        row[0] = timestamp;
+        row[1] = pose.getX();
+        row[2] = pose.getY();
+        row[3] = pose.getZ();
+        row[4] = q.getW();
+        row[5] = q.getX();
+        row[6] = q.getY();
+        row[7] = q.getZ();
+        frameSamples++;
+        frameTimestamp = Math.max(frameTimestamp, timestamp);
+        return row;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (closed || frameSamples == 0) return;
+
+        // the same latest result can be polled repeatedly, only record new frames
+        if (frameTimestamp > lastFlushTimestamp) {
+            for (int i = 0; i < frameSamples; i++) {
+                var target = series.computeIfAbsent(frameIds[i], Series::new);
+                target.append(frameRows[i]);
+                if (target.count == kSamplesPerBlock) write(target.takeBlock());
+            }
+            lastFlushTimestamp = frameTimestamp;
+        }
+        frameSamples = 0;
+        frameTimestamp = 0;
+    }
+
+    private void write(ByteBuffer block) {
+        block.flip();
+        writer.execute(() -> {
+            try {
+                while (block.hasRemaining()) channel.write(block);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Queues the partial blocks and the file close behind the pending writes without waiting for them.
+    // Samples added since the last flush() are dropped.
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (var target : series.values()) {
+            if (target.count > 0) write(target.takeBlock());
+        }
+        series.clear();
+        frameSamples = 0;
+        writer.execute(() -> {
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        writer.shutdown();
+    }
+
+    // Waits until every block is written and the file is closed, e.g. before reading it back.
+    public boolean awaitClosed(long timeout, TimeUnit unit) throws InterruptedException {
+        return writer.awaitTermination(timeout, unit);
+    }
+}
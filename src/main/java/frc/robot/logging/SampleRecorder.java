@@ -0,0 +1,21 @@
+package frc.robot.logging;
+
+import java.util.List;
+
+import org.photonvision.targeting.TargetCorner;
+
+import edu.wpi.first.math.geometry.Pose3d;
+
+// Receives the raw vision samples of a frame, which are written together on flush(). Samples
+// added after close() are ignored.
+public interface SampleRecorder extends AutoCloseable {
+    void add(int id, Pose3d pose, List<TargetCorner> corners, double timestamp);
+
+    // corner lists longer than four corners are split across samples sharing id/pose/timestamp
+    void add(int id, Pose3d pose, double[] tcornxy, double timestamp);
+
+    void flush();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,177 @@
+package frc.robot.replay;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import frc.robot.statistics.TargetStatistics;
+
+// Replays a recorded sample archive through a grid of statistics configurations, one configuration
+// per task on all cores, each into its own unpublished TargetStatistics per fiducial ID, and prints
+// a comparison table:
+//   ./gradlew sweepParameters -Parchive=<file.vsga>
+// The archive is decoded once into a SampleStore that every task scans.
+public class ParameterSweep {
+    static final double[] kBufferSeconds = {5, 10, 20, 40};
+    static final boolean[] kTimeWeighted = {false, true};
+    static final double[] kOutlierThresholds = {0, 3, 3.5, 5};
+    static final boolean[] kCircularRotation = {false, true};
+
+    static final class Config {
+        final double bufferSeconds;
+        final boolean timeWeighted;
+        final double outlierThreshold;
+        final boolean circularRotation;
+
+        Config(double bufferSeconds, boolean timeWeighted, double outlierThreshold, boolean circularRotation) {
+            this.bufferSeconds = bufferSeconds;
+            this.timeWeighted = timeWeighted;
+            this.outlierThreshold = outlierThreshold;
+            this.circularRotation = circularRotation;
+        }
+    }
+
+    // averages over every update of every fiducial ID
+    static final class Metrics {
+        long updates = 0;
+        double translationStdDev = 0;
+        double stdDevJitter = 0;
+        double rotationStdDevDeg = 0;
+        double translationRange = 0;
+        long rejected = 0;
+        double cpuMillis = 0;
+    }
+
+    private static final class Target {
+        final TargetStatistics stats;
+        double lastStdDev = Double.NaN;
+
+        Target(Config config) {
+            stats = new TargetStatistics(null, config.bufferSeconds);
+            stats.setTimeWeightedStats(config.timeWeighted);
+            stats.setOutlierThreshold(config.outlierThreshold);
+            stats.setCircularRotationStats(config.circularRotation);
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 1 || args[0].isEmpty()) {
+            System.err.println("Usage: ./gradlew sweepParameters -Parchive=<file.vsga>");
+            System.exit(1);
+        }
+
+        var configs = new ArrayList<Config>();
+        for (double bufferSeconds : kBufferSeconds) {
+            for (boolean timeWeighted : kTimeWeighted) {
+                for (double outlierThreshold : kOutlierThresholds) {
+                    for (boolean circularRotation : kCircularRotation) {
+                        configs.add(new Config(bufferSeconds, timeWeighted, outlierThreshold, circularRotation));
+                    }
+                }
+            }
+        }
+
+        long decodeStart = System.nanoTime();
+        try (var store = SampleStore.open(Path.of(args[0]))) {
+            System.out.printf("%d samples ready in %.2f s%n", store.getSampleCount(), (System.nanoTime() - decodeStart) / 1e9);
+
+            int threads = Runtime.getRuntime().availableProcessors();
+            var executor = Executors.newFixedThreadPool(threads);
+            long start = System.nanoTime();
+            var futures = new ArrayList<Future<Metrics>>();
+            for (var config : configs) futures.add(executor.submit(() -> replay(store, config)));
+            var results = new ArrayList<Metrics>();
+            try {
+                for (var future : futures) results.add(future.get());
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            finally {
+                executor.shutdownNow();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            printTable(configs, results);
+            System.out.printf("%d configurations on %d threads in %.2f s: %.1f configurations/s, %.3g samples/s%n",
+                configs.size(), threads, seconds, configs.size() / seconds, (double)configs.size() * store.getSampleCount() / seconds);
+        }
+    }
+
+    static Metrics replay(SampleStore store, Config config) {
+        long start = System.nanoTime();
+        var targets = new HashMap<Integer, Target>();
+        // reused corner arrays by corner count, as tcornxy
+        double[][] corners = new double[5][];
+        for (int c = 0; c < corners.length; c++) corners[c] = new double[c * 2];
+
+        long updates = 0, jitterCount = 0;
+        double stdDevSum = 0, jitterSum = 0, rotationSum = 0, rangeSum = 0;
+        for (int i = 0; i < store.getSampleCount(); i++) {
+            var target = targets.computeIfAbsent(store.getId(i), id -> new Target(config));
+
+            // missing corners are NaN
+            int cornerCount = 0;
+            while (cornerCount < 4 && !Double.isNaN(store.get(SampleStore.kCornerX + cornerCount, i))) cornerCount++;
+            var tcornxy = corners[cornerCount];
+            for (int c = 0; c < cornerCount; c++) {
+                tcornxy[c*2] = store.get(SampleStore.kCornerX + c, i);
+                tcornxy[c*2+1] = store.get(SampleStore.kCornerY + c, i);
+            }
+
+            target.stats.update(
+                store.get(SampleStore.kX, i), store.get(SampleStore.kY, i), store.get(SampleStore.kZ, i),
+                store.get(SampleStore.kQW, i), store.get(SampleStore.kQX, i), store.get(SampleStore.kQY, i), store.get(SampleStore.kQZ, i),
+                tcornxy, store.getTimestamp(i));
+
+            var pose = target.stats.getResult().getPose();
+            double stdDev = pose.getTranslationStdDev().getNorm();
+            double[] rotationStdDev = pose.getRotationStdDev();
+            updates++;
+            stdDevSum += stdDev;
+            if (rotationStdDev.length == 3) rotationSum += Math.toDegrees(Math.max(rotationStdDev[0], Math.max(rotationStdDev[1], rotationStdDev[2])));
+            rangeSum += pose.getTranslationMax().minus(pose.getTranslationMin()).getNorm();
+            if (!Double.isNaN(target.lastStdDev)) {
+                jitterSum += Math.abs(stdDev - target.lastStdDev);
+                jitterCount++;
+            }
+            target.lastStdDev = stdDev;
+        }
+
+        var metrics = new Metrics();
+        for (var target : targets.values()) {
+            metrics.rejected += target.stats.getRejectedCount();
+            target.stats.close();
+        }
+        metrics.updates = updates;
+        if (updates > 0) {
+            metrics.translationStdDev = stdDevSum / updates;
+            metrics.rotationStdDevDeg = rotationSum / updates;
+            metrics.translationRange = rangeSum / updates;
+        }
+        if (jitterCount > 0) metrics.stdDevJitter = jitterSum / jitterCount;
+        metrics.cpuMillis = (System.nanoTime() - start) / 1e6;
+        return metrics;
+    }
+
+    private static void printTable(List<Config> configs, List<Metrics> results) {
+        System.out.printf("%8s %6s %7s %10s | %8s %12s %12s %14s %11s %8s %9s%n",
+            "window s", "timewt", "outlier", "rotation",
+            "updates", "trl stddev m", "jitter m", "rot stddev deg", "trl range m", "rejected", "cpu ms");
+        for (int i = 0; i < configs.size(); i++) {
+            var config = configs.get(i);
+            var metrics = results.get(i);
+            System.out.printf("%8.1f %6s %7s %10s | %8d %12.5f %12.6f %14.4f %11.5f %8d %9.1f%n",
+                config.bufferSeconds,
+                config.timeWeighted ? "yes" : "no",
+                config.outlierThreshold > 0 ? String.valueOf(config.outlierThreshold) : "off",
+                config.circularRotation ? "circular" : "quaternion",
+                metrics.updates, metrics.translationStdDev, metrics.stdDevJitter, metrics.rotationStdDevDeg,
+                metrics.translationRange, metrics.rejected, metrics.cpuMillis);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package frc.robot.replay;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import frc.robot.logging.SampleArchiveReader;
+
+// The samples of a recorded session (a SampleArchiveWriter archive) decoded once into a
+// memory-mapped columnar file, ordered by timestamp across fiducial IDs. Replays read the mapped
+// columns directly, so any number of threads can scan one session without decoding it again or
+// holding a copy each. The store is kept next to the archive ("<archive>.columns") and reused
+// while it is newer than the archive.
+//
+// File: int magic, int version, int sampleCount, int columns, then each column as sampleCount
+// little-endian doubles.
+public class SampleStore implements AutoCloseable {
+    private static final int kMagic = 0x56534353; // "VSCS"
+    private static final int kVersion = 1;
+    private static final int kHeaderBytes = 16;
+
+    // columns of get()
+    public static final int kTimestamp = 0, kId = 1;
+    public static final int kX = 2, kY = 3, kZ = 4, kQW = 5, kQX = 6, kQY = 7, kQZ = 8;
+    public static final int kCornerX = 9; // + corner index
+    public static final int kCornerY = kCornerX + 4;
+    public static final int kColumns = 2 + SampleArchiveReader.kColumns;
+
+    // the sort key packs the sample index below the timestamp offset in microseconds
+    private static final int kIndexBits = 24;
+
+    private final FileChannel channel;
+    private final int sampleCount;
+    private final DoubleBuffer[] columns = new DoubleBuffer[kColumns];
+
+    private SampleStore(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.capacity() < kHeaderBytes || buffer.getInt(0) != kMagic || buffer.getInt(4) != kVersion || buffer.getInt(12) != kColumns) {
+                throw new IOException("Not a version " + kVersion + " sample store: " + path);
+            }
+            sampleCount = buffer.getInt(8);
+            if (buffer.capacity() != kHeaderBytes + (long)kColumns * sampleCount * 8) throw new IOException("Truncated sample store: " + path);
+            for (int c = 0; c < kColumns; c++) {
+                columns[c] = buffer.slice(kHeaderBytes + c * sampleCount * 8, sampleCount * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static Path storePath(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + ".columns");
+    }
+
+    // Maps the archive's store, decoding the archive first if the store is missing or older.
+    public static SampleStore open(Path archive) throws IOException {
+        var store = storePath(archive);
+        if (!Files.exists(store) || Files.getLastModifiedTime(store).compareTo(Files.getLastModifiedTime(archive)) < 0) {
+            decode(archive, store);
+        }
+        return new SampleStore(store);
+    }
+
+    private static void decode(Path archive, Path store) throws IOException {
+        // decoded in archive order (per-ID blocks), then written in timestamp order
+        int count = 0;
+        double[][] decoded = new double[kColumns][1 << 16];
+        try (var reader = new SampleArchiveReader(archive)) {
+            while (reader.nextBlock()) {
+                int blockCount = reader.getSampleCount();
+                if (count + blockCount > decoded[0].length) {
+                    for (int c = 0; c < kColumns; c++) decoded[c] = Arrays.copyOf(decoded[c], decoded[c].length * 2);
+                }
+                System.arraycopy(reader.getTimestamps(), 0, decoded[kTimestamp], count, blockCount);
+                Arrays.fill(decoded[kId], count, count + blockCount, reader.getId());
+                for (int c = 0; c < SampleArchiveReader.kColumns; c++) {
+                    System.arraycopy(reader.getColumn(c), 0, decoded[kX + c], count, blockCount);
+                }
+                count += blockCount;
+            }
+        }
+        if (count >= 1 << kIndexBits || kHeaderBytes + (long)kColumns * count * 8 > Integer.MAX_VALUE) {
+            throw new IOException("Too many samples for a sample store: " + count);
+        }
+
+        // one primitive sort, ties keep archive order
+        long[] keys = new long[count];
+        double first = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) first = Math.min(first, decoded[kTimestamp][i]);
+        for (int i = 0; i < count; i++) {
+            long micros = Math.round((decoded[kTimestamp][i] - first) * 1e6);
+            keys[i] = (micros << kIndexBits) | i;
+        }
+        Arrays.sort(keys);
+
+        var temp = store.resolveSibling(store.getFileName() + ".tmp");
+        try (var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = out.map(FileChannel.MapMode.READ_WRITE, 0, kHeaderBytes + (long)kColumns * count * 8);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(kMagic).putInt(kVersion).putInt(count).putInt(kColumns);
+            for (int c = 0; c < kColumns; c++) {
+                var column = decoded[c];
+                for (int k = 0; k < count; k++) buffer.putDouble(column[(int)(keys[k] & ((1 << kIndexBits) - 1))]);
+            }
+            buffer.force();
+        }
+        Files.move(temp, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getSampleCount() {return sampleCount;}
+    // absolute reads of the mapped columns, safe from any number of threads
+    public double get(int column, int sample) {return columns[column].get(sample);}
+    public double getTimestamp(int sample) {return columns[kTimestamp].get(sample);}
+    public int getId(int sample) {return (int)columns[kId].get(sample);}
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,272 @@
+package frc.robot.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import frc.robot.statistics.StatisticsRegistry;
+import frc.robot.statistics.TargetStatistics;
+
+// Serves the registered statistics over HTTP so dashboards can pull one snapshot instead of
+// subscribing to hundreds of NT topics:
+//   GET /stats      all statistics as a JSON array
+//   GET /stats.bin  the same values packed little-endian (see writeBinary)
+//   GET /events     Server-Sent Events, a "stats" event with the statistics updated since the
+//                   last event and a "removed" event with names of unregistered ones
+// Everything runs on the server's own daemon threads and only reads the registry and the
+// statistics' published results, never the robot thread.
+public class StatisticsHttpServer implements AutoCloseable {
+    private static final int kRequestThreads = 2;
+    private static final int kMaxEventStreams = 4;
+    private static final long kHeartbeatMillis = 15000;
+
+    private final StatisticsRegistry registry;
+    private final long eventPeriodMillis;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor = Executors.newFixedThreadPool(kRequestThreads, daemonThreads("StatisticsHttp"));
+    // one thread per open event stream, further streams are refused
+    private final ThreadPoolExecutor streamExecutor = new ThreadPoolExecutor(0, kMaxEventStreams, 30, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), daemonThreads("StatisticsHttpEvents"));
+    private volatile boolean running = true;
+
+    public StatisticsHttpServer(StatisticsRegistry registry, int port, double eventPeriodSeconds) throws IOException {
+        this.registry = registry;
+        this.eventPeriodMillis = Math.max(10, (long)(eventPeriodSeconds * 1000));
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(requestExecutor);
+        server.createContext("/stats", exchange -> {
+            try (exchange) {
+                var body = writeJson(registry.getAll()).getBytes(StandardCharsets.UTF_8);
+                send(exchange, "application/json", body);
+            }
+        });
+        server.createContext("/stats.bin", exchange -> {
+            try (exchange) {
+                send(exchange, "application/octet-stream", writeBinary(registry.getAll()));
+            }
+        });
+        server.createContext("/events", exchange -> {
+            if (rejectUnlessGet(exchange)) {
+                exchange.close();
+                return;
+            }
+            try {
+                streamExecutor.execute(() -> streamEvents(exchange));
+            }
+            catch (RejectedExecutionException e) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            var thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // the bound port, e.g. when created with port 0
+    public int getPort() {return server.getAddress().getPort();}
+
+    // answers anything but GET with 405, true if it did
+    private static boolean rejectUnlessGet(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("GET")) return false;
+        exchange.sendResponseHeaders(405, -1);
+        return true;
+    }
+
+    private static void send(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        if (rejectUnlessGet(exchange)) return;
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    // Polls the registry every event period and sends the statistics whose update count changed.
+    private void streamEvents(HttpExchange exchange) {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+
+            Map<String, Long> sentUpdateCounts = new HashMap<>();
+            long lastWriteMillis = System.currentTimeMillis();
+            while (running) {
+                var all = registry.getAll();
+                var changed = new ArrayList<TargetStatistics>();
+                var current = new HashMap<String, Long>();
+                for (var stats : all) {
+                    long updateCount = stats.getResult().getUpdateCount();
+                    current.put(stats.getName(), updateCount);
+                    Long sent = sentUpdateCounts.get(stats.getName());
+                    if (sent == null || sent != updateCount) changed.add(stats);
+                }
+                var removed = new ArrayList<String>();
+                for (var name : sentUpdateCounts.keySet()) {
+                    if (!current.containsKey(name)) removed.add(name);
+                }
+                sentUpdateCounts = current;
+
+                var event = new StringBuilder();
+                if (!changed.isEmpty()) event.append("event: stats\ndata: ").append(writeJson(changed)).append("\n\n");
+                if (!removed.isEmpty()) {
+                    event.append("event: removed\ndata: [");
+                    for (int i = 0; i < removed.size(); i++) {
+                        if (i > 0) event.append(',');
+                        appendString(event, removed.get(i));
+                    }
+                    event.append("]\n\n");
+                }
+                long now = System.currentTimeMillis();
+                // comment lines keep proxies from timing out and detect closed clients
+                if (event.length() == 0 && now - lastWriteMillis >= kHeartbeatMillis) event.append(": heartbeat\n\n");
+                if (event.length() > 0) {
+                    out.write(event.toString().getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    lastWriteMillis = now;
+                }
+                Thread.sleep(eventPeriodMillis);
+            }
+        }
+        catch (IOException e) {
+            // client went away
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //----- Encoding
+    // {"name", "updateCount", "timestamp", "samples", "converged", "translationAvg": [x, y, z],
+    //  "translationStdDev", "rotationAvgDeg", "rotationStdDevDeg", "cornerStdDev": [x, y]}
+    static String writeJson(List<TargetStatistics> all) {
+        var json = new StringBuilder(256 * all.size() + 2);
+        json.append('[');
+        for (int i = 0; i < all.size(); i++) {
+            var stats = all.get(i);
+            var result = stats.getResult();
+            var pose = result.getPose();
+            if (i > 0) json.append(',');
+            json.append("{\"name\":");
+            appendString(json, stats.getName());
+            json.append(",\"updateCount\":").append(result.getUpdateCount());
+            json.append(",\"timestamp\":");
+            appendNumber(json, result.getTimestampSeconds());
+            json.append(",\"samples\":").append(pose.getSummary().getCount());
+            json.append(",\"converged\":").append(stats.isConverged());
+            json.append(",\"translationAvg\":");
+            appendArray(json, pose.getTranslationAvg().getX(), pose.getTranslationAvg().getY(), pose.getTranslationAvg().getZ());
+            json.append(",\"translationStdDev\":");
+            appendArray(json, pose.getTranslationStdDev().getX(), pose.getTranslationStdDev().getY(), pose.getTranslationStdDev().getZ());
+            json.append(",\"rotationAvgDeg\":");
+            appendArray(json, Math.toDegrees(pose.getRotationAvg().getX()), Math.toDegrees(pose.getRotationAvg().getY()), Math.toDegrees(pose.getRotationAvg().getZ()));
+            json.append(",\"rotationStdDevDeg\":");
+            var rotationStdDev = rotationStdDevDegrees(pose.getRotationStdDev());
+            appendArray(json, rotationStdDev[0], rotationStdDev[1], rotationStdDev[2]);
+            json.append(",\"cornerStdDev\":");
+            var cornerStdDev = result.getCorners().getTotalCornerStdDev();
+            appendArray(json, cornerStdDev.x, cornerStdDev.y);
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    // int count, then per statistic: short name length, UTF-8 name, long updateCount,
+    // double timestamp, long samples, byte converged, 3 translation avg, 3 translation std dev,
+    // 3 rotation avg (deg), 3 rotation std dev (deg), 2 corner std dev
+    static byte[] writeBinary(List<TargetStatistics> all) {
+        var names = new byte[all.size()][];
+        int bytes = 4;
+        for (int i = 0; i < all.size(); i++) {
+            names[i] = all.get(i).getName().getBytes(StandardCharsets.UTF_8);
+            bytes += 2 + names[i].length + 8 + 8 + 8 + 1 + 14 * 8;
+        }
+        var buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(all.size());
+        for (int i = 0; i < all.size(); i++) {
+            var stats = all.get(i);
+            var result = stats.getResult();
+            var pose = result.getPose();
+            buffer.putShort((short)names[i].length).put(names[i]);
+            buffer.putLong(result.getUpdateCount());
+            buffer.putDouble(result.getTimestampSeconds());
+            buffer.putLong(pose.getSummary().getCount());
+            buffer.put((byte)(stats.isConverged() ? 1 : 0));
+            var translationAvg = pose.getTranslationAvg();
+            var translationStdDev = pose.getTranslationStdDev();
+            var rotationAvg = pose.getRotationAvg();
+            var rotationStdDev = rotationStdDevDegrees(pose.getRotationStdDev());
+            var cornerStdDev = result.getCorners().getTotalCornerStdDev();
+            buffer.putDouble(translationAvg.getX()).putDouble(translationAvg.getY()).putDouble(translationAvg.getZ());
+            buffer.putDouble(translationStdDev.getX()).putDouble(translationStdDev.getY()).putDouble(translationStdDev.getZ());
+            buffer.putDouble(Math.toDegrees(rotationAvg.getX())).putDouble(Math.toDegrees(rotationAvg.getY())).putDouble(Math.toDegrees(rotationAvg.getZ()));
+            buffer.putDouble(rotationStdDev[0]).putDouble(rotationStdDev[1]).putDouble(rotationStdDev[2]);
+            buffer.putDouble(cornerStdDev.x).putDouble(cornerStdDev.y);
+        }
+        return buffer.array();
+    }
+
+    // the empty result has no rotation std devs yet
+    private static double[] rotationStdDevDegrees(double[] radians) {
+        double[] degrees = new double[3];
+        for (int a = 0; a < Math.min(3, radians.length); a++) degrees[a] = Math.toDegrees(radians[a]);
+        return degrees;
+    }
+
+    private static void appendArray(StringBuilder json, double... values) {
+        json.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) json.append(',');
+            appendNumber(json, values[i]);
+        }
+        json.append(']');
+    }
+
+    private static void appendNumber(StringBuilder json, double value) {
+        if (Double.isFinite(value)) json.append(value);
+        else json.append("null");
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') json.append('\\').append(c);
+            else if (c < 0x20) json.append(String.format("\\u%04x", (int)c));
+            else json.append(c);
+        }
+        json.append('"');
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        streamExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,93 @@
+package frc.robot.sim;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+// Publishes sustained frame throughput, allocation rate and GC pauses of the soak test.
+public class SoakTestMonitor {
+    private final ThreadMXBean threadBean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private final double reportPeriodSeconds;
+
+    private final DoublePublisher framesPerSecondPublisher;
+    private final DoublePublisher processingMsPerFramePublisher;
+    private final DoublePublisher allocatedMBPerSecondPublisher;
+    private final DoublePublisher gcPauseMsPerSecondPublisher;
+    private final DoublePublisher gcPauseMaxMsPublisher;
+
+    private long periodStartNanos = System.nanoTime();
+    private long periodStartAllocatedBytes;
+    private long periodStartGcMillis;
+    private long periodFrames = 0;
+    private long periodProcessingNanos = 0;
+    private volatile long periodMaxPauseMillis = 0;
+
+    public SoakTestMonitor(String tableName, double reportPeriodSeconds) {
+        this.reportPeriodSeconds = reportPeriodSeconds;
+
+        var table = NetworkTableInstance.getDefault().getTable(tableName);
+        framesPerSecondPublisher = table.getDoubleTopic("FramesPerSecond").publish();
+        processingMsPerFramePublisher = table.getDoubleTopic("ProcessingMsPerFrame").publish();
+        allocatedMBPerSecondPublisher = table.getDoubleTopic("AllocatedMBPerSecond").publish();
+        gcPauseMsPerSecondPublisher = table.getDoubleTopic("GCPauseMsPerSecond").publish();
+        gcPauseMaxMsPublisher = table.getDoubleTopic("GCPauseMaxMs").publish();
+
+        for (var gc : gcBeans) {
+            if (!(gc instanceof NotificationEmitter)) continue;
+            ((NotificationEmitter)gc).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) return;
+                var info = GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+                long duration = info.getGcInfo().getDuration();
+                if (duration > periodMaxPauseMillis) periodMaxPauseMillis = duration;
+            }, null, null);
+        }
+
+        periodStartAllocatedBytes = threadBean.getCurrentThreadAllocatedBytes();
+        periodStartGcMillis = totalGcMillis();
+    }
+
+    private long totalGcMillis() {
+        long millis = 0;
+        for (var gc : gcBeans) millis += Math.max(0, gc.getCollectionTime());
+        return millis;
+    }
+
+    public void recordFrames(int frames, long processingNanos) {
+        periodFrames += frames;
+        periodProcessingNanos += processingNanos;
+
+        long now = System.nanoTime();
+        double elapsed = (now - periodStartNanos) / 1e9;
+        if (elapsed < reportPeriodSeconds) return;
+
+        long allocated = threadBean.getCurrentThreadAllocatedBytes();
+        long gcMillis = totalGcMillis();
+        double fps = periodFrames / elapsed;
+        double msPerFrame = periodFrames == 0 ? 0 : periodProcessingNanos / 1e6 / periodFrames;
+        double allocatedMBPerSecond = (allocated - periodStartAllocatedBytes) / 1e6 / elapsed;
+        double gcMsPerSecond = (gcMillis - periodStartGcMillis) / elapsed;
+
+        framesPerSecondPublisher.set(fps);
+        processingMsPerFramePublisher.set(msPerFrame);
+        allocatedMBPerSecondPublisher.set(allocatedMBPerSecond);
+        gcPauseMsPerSecondPublisher.set(gcMsPerSecond);
+        gcPauseMaxMsPublisher.set(periodMaxPauseMillis);
+
+        periodStartNanos = now;
+        periodStartAllocatedBytes = allocated;
+        periodStartGcMillis = gcMillis;
+        periodFrames = 0;
+        periodProcessingNanos = 0;
+        periodMaxPauseMillis = 0;
+    }
+}
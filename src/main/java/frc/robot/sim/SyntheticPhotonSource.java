@@ -0,0 +1,112 @@
+package frc.robot.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+// Generates simulated PhotonPipelineResults with noisy camera-to-target poses and corners,
+// for driving the statistics far beyond real camera frame rates.
+public class SyntheticPhotonSource {
+    private final Random random;
+    private final int[] tagIds;
+    private final Transform3d[] trueCameraToTargets;
+    private final double[][] trueCorners;
+
+    private double translationNoiseMeters = 0.01;
+    private double rotationNoiseRadians = Math.toRadians(0.5);
+    private double cornerNoisePixels = 0.5;
+    private double outlierProbability = 0.01;
+    private double outlierScale = 20;
+
+    private final double frameSeconds;
+    private double timestamp;
+
+    // frames are stamped from startSeconds on, e.g. the FPGA time so they line up with the log and
+    // the other statistics' timestamps
+    public SyntheticPhotonSource(int tagCount, double framesPerSecond, long seed, double startSeconds) {
+        random = new Random(seed);
+        frameSeconds = 1 / framesPerSecond;
+        timestamp = startSeconds;
+        tagIds = new int[tagCount];
+        trueCameraToTargets = new Transform3d[tagCount];
+        trueCorners = new double[tagCount][];
+        for (int i = 0; i < tagCount; i++) {
+            tagIds[i] = i + 1;
+            // spread tags across the camera's view 2-5 meters away, facing the camera
+            double distance = 2 + 3.0 * i / Math.max(1, tagCount - 1);
+            double lateral = (i % 2 == 0 ? 1 : -1) * 0.4 * (i / 2);
+            trueCameraToTargets[i] = new Transform3d(
+                new Translation3d(distance, lateral, 0.3),
+                new Rotation3d(0, 0, Math.PI));
+
+            double centerX = 640 - lateral / distance * 900;
+            double centerY = 360 - 0.3 / distance * 900;
+            double halfSize = 0.0762 / distance * 900;
+            trueCorners[i] = new double[]{
+                centerX - halfSize, centerY + halfSize,
+                centerX + halfSize, centerY + halfSize,
+                centerX + halfSize, centerY - halfSize,
+                centerX - halfSize, centerY - halfSize
+            };
+        }
+    }
+
+    public SyntheticPhotonSource withNoise(double translationMeters, double rotationRadians, double cornerPixels) {
+        translationNoiseMeters = translationMeters;
+        rotationNoiseRadians = rotationRadians;
+        cornerNoisePixels = cornerPixels;
+        return this;
+    }
+
+    public SyntheticPhotonSource withOutliers(double probability, double scale) {
+        outlierProbability = probability;
+        outlierScale = scale;
+        return this;
+    }
+
+    public double getTimestampSeconds() {return timestamp;}
+
+    public PhotonPipelineResult next() {
+        timestamp += frameSeconds;
+
+        List<PhotonTrackedTarget> targets = new ArrayList<>(tagIds.length);
+        for (int i = 0; i < tagIds.length; i++) {
+            double scale = random.nextDouble() < outlierProbability ? outlierScale : 1;
+            var truth = trueCameraToTargets[i];
+            var cameraToTarget = new Transform3d(
+                new Translation3d(
+                    truth.getX() + noise(translationNoiseMeters * scale),
+                    truth.getY() + noise(translationNoiseMeters * scale),
+                    truth.getZ() + noise(translationNoiseMeters * scale)),
+                truth.getRotation().plus(new Rotation3d(
+                    noise(rotationNoiseRadians * scale),
+                    noise(rotationNoiseRadians * scale),
+                    noise(rotationNoiseRadians * scale))));
+
+            var corners = new ArrayList<TargetCorner>(4);
+            for (int c = 0; c < 4; c++) {
+                corners.add(new TargetCorner(
+                    trueCorners[i][c*2] + noise(cornerNoisePixels * scale),
+                    trueCorners[i][c*2+1] + noise(cornerNoisePixels * scale)));
+            }
+
+            targets.add(new PhotonTrackedTarget(0, 0, 0, 0, tagIds[i], cameraToTarget, cameraToTarget, 0.05, corners, corners));
+        }
+
+        var result = new PhotonPipelineResult(0, targets);
+        result.setTimestampSeconds(timestamp);
+        return result;
+    }
+
+    private double noise(double stdDev) {
+        return random.nextGaussian() * stdDev;
+    }
+}
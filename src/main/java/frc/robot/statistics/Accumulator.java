@@ -0,0 +1,16 @@
+package frc.robot.statistics;
+
+// Incremental statistic over a stream of sample rows. Rows are added as they arrive and removed
+// again when they leave the window, so a result is available in O(1) per update instead of an
+// O(n) recompute. Accumulators whose results of disjoint sample sets combine implement
+// MergeableAccumulator.
+public interface Accumulator<R> {
+    void add(double timestamp, double[] row);
+
+    // removes a row previously passed to add()
+    void remove(double timestamp, double[] row);
+
+    void clear();
+
+    R result();
+}
@@ -0,0 +1,76 @@
+package frc.robot.statistics;
+
+// Windowed circular mean and std dev of some angle columns of the sample rows. Follows the sample
+// window as an accumulator: each sample's sin/cos are added to running sums and subtracted again on
+// eviction, so updates are O(1) instead of rescanning the buffer.
+public class CircularStatistics implements Accumulator<double[]> {
+    private final int[] columns;
+    private long count = 0;
+    private final double[] sinSums;
+    private final double[] cosSums;
+
+    public CircularStatistics(int... columns) {
+        this.columns = columns.clone();
+        sinSums = new double[columns.length];
+        cosSums = new double[columns.length];
+    }
+
+    @Override
+    public void add(double timestamp, double[] row) {
+        for (int i = 0; i < columns.length; i++) {
+            sinSums[i] += Math.sin(row[columns[i]]);
+            cosSums[i] += Math.cos(row[columns[i]]);
+        }
+        count++;
+    }
+
+    @Override
+    public void remove(double timestamp, double[] row) {
+        for (int i = 0; i < columns.length; i++) {
+            sinSums[i] -= Math.sin(row[columns[i]]);
+            cosSums[i] -= Math.cos(row[columns[i]]);
+        }
+        count--;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < columns.length; i++) {
+            sinSums[i] = 0;
+            cosSums[i] = 0;
+        }
+        count = 0;
+    }
+
+    public long getCount() {return count;}
+
+    // mean resultant length R of one column, 1 when all samples agree
+    public double getResultantLength(int i) {
+        if (count == 0) return 0;
+        return Math.hypot(sinSums[i], cosSums[i]) / count;
+    }
+
+    public double getMean(int i) {
+        return Math.atan2(sinSums[i], cosSums[i]);
+    }
+
+    public double getStdDev(int i) {
+        if (count == 0) return 0;
+        double r = Math.min(1, getResultantLength(i));
+        return Math.sqrt(-2 * Math.log(r));
+    }
+
+    public double[] getStdDev() {
+        double[] stdDevs = new double[columns.length];
+        for (int i = 0; i < columns.length; i++) stdDevs[i] = getStdDev(i);
+        return stdDevs;
+    }
+
+    // means per column
+    @Override
+    public double[] result() {
+        double[] means = new double[columns.length];
+        for (int i = 0; i < columns.length; i++) means[i] = getMean(i);
+        return means;
+    }
+}
@@ -0,0 +1,51 @@
+package frc.robot.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs several accumulators over one shared sample stream. Keep the accumulators returned by
+// attach() for typed access to their results. Weights reach the weighted accumulators, the others
+// count every sample once.
+public class CompositeAccumulator implements WeightedAccumulator<List<Object>> {
+    private final List<Accumulator<Object>> accumulators = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    public <A extends Accumulator<?>> A attach(A accumulator) {
+        accumulators.add((Accumulator<Object>)accumulator);
+        return accumulator;
+    }
+
+    public void detach(Accumulator<?> accumulator) {
+        accumulators.remove(accumulator);
+    }
+
+    public int size() {return accumulators.size();}
+
+    @Override
+    public void add(double timestamp, double[] row, double weight) {
+        for (var accumulator : accumulators) {
+            if (accumulator instanceof WeightedAccumulator) ((WeightedAccumulator<Object>)accumulator).add(timestamp, row, weight);
+            else accumulator.add(timestamp, row);
+        }
+    }
+
+    @Override
+    public void remove(double timestamp, double[] row, double weight) {
+        for (var accumulator : accumulators) {
+            if (accumulator instanceof WeightedAccumulator) ((WeightedAccumulator<Object>)accumulator).remove(timestamp, row, weight);
+            else accumulator.remove(timestamp, row);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (var accumulator : accumulators) accumulator.clear();
+    }
+
+    @Override
+    public List<Object> result() {
+        var results = new ArrayList<Object>(accumulators.size());
+        for (var accumulator : accumulators) results.add(accumulator.result());
+        return results;
+    }
+}
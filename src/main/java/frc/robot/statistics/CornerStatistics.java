@@ -1,95 +1,344 @@
 package frc.robot.statistics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.photonvision.targeting.PhotonTrackedTarget;
 import org.photonvision.targeting.TargetCorner;
 
 import edu.wpi.first.networktables.DoublePublisher;
-import edu.wpi.first.networktables.NetworkTableInstance;
 
 public class CornerStatistics extends Statistics<List<TargetCorner>> {
     private final DoublePublisher cornerStdDevXPublisher;
     private final DoublePublisher cornerStdDevYPublisher;
+    private final DoublePublisher cornerRangeXPublisher;
+    private final DoublePublisher cornerRangeYPublisher;
 
-    private final List<TimedBuffer<TargetCorner>> cornerBuffers = new ArrayList<>();
+    // one window of {x, y} rows per corner, keyed by (fiducial ID, corner index) so a corner keeps
+    // its history when other tags enter or leave view
+    private final LongIntHashMap keyToSlot = new LongIntHashMap();
+    private long[] slotKeys = new long[16];
+    private SampleWindow[] cornerBuffers = new SampleWindow[16];
+    private CompositeAccumulator[] cornerAccumulators = new CompositeAccumulator[16];
+    private MomentAccumulator[] cornerMoments = new MomentAccumulator[16];
+    private MinMaxAccumulator[] cornerExtremes = new MinMaxAccumulator[16];
+    private int slotCount = 0;
+    private int[] sortedSlots = new int[16];
+    private final double[] row = new double[2];
+    private boolean compactStorage = false;
     
-    private List<TargetCorner> cornerAvgs = new ArrayList<>();
-    private List<TargetCorner> cornerStdDevs = new ArrayList<>();
-    private TargetCorner totalCornerSqError = new TargetCorner(0, 0);
-    private TargetCorner totalCornerStdDev = new TargetCorner(0, 0);
+    // replaced by calculate() with a single volatile write, safe to read from any thread
+    private volatile Result result = Result.kEmpty;
 
     public CornerStatistics(String tableName, double bufferSeconds) {
         super(tableName, bufferSeconds);
 
-        var table = NetworkTableInstance.getDefault().getTable(tableName);
-        cornerStdDevXPublisher = table.getDoubleTopic("TotalCornerStdDevX").publish();
-        cornerStdDevYPublisher = table.getDoubleTopic("TotalCornerStdDevY").publish();
+        var table = getTable();
+        cornerStdDevXPublisher = publishDouble(table, "TotalCornerStdDevX");
+        cornerStdDevYPublisher = publishDouble(table, "TotalCornerStdDevY");
+        cornerRangeXPublisher = publishDouble(table, "MaxCornerRangeX");
+        cornerRangeYPublisher = publishDouble(table, "MaxCornerRangeY");
     }
 
     @Override
     public void setBufferSeconds(double bufferSeconds) {
         super.setBufferSeconds(bufferSeconds);
-        if (cornerBuffers != null) for (var buffer : cornerBuffers) buffer.setBufferSeconds(bufferSeconds);
+        if (cornerBuffers != null) for (int s = 0; s < slotCount; s++) cornerBuffers[s].setBufferSeconds(bufferSeconds);
     }
 
+    // Compact storage keeps samples as float columns, accumulators stay double
+    public void setCompactStorage(boolean compact) {
+        compactStorage = compact;
+        for (int s = 0; s < slotCount; s++) {
+            if (cornerBuffers[s].isCompact() == compact) continue;
+            cornerBuffers[s] = new SampleWindow(cornerBuffers[s], compact);
+            cornerBuffers[s].setAccumulator(cornerAccumulators[s]);
+        }
+    }
+
+    //----- Corner keys
+    // corners without a known fiducial ID (e.g. Limelight tcornxy) are keyed by list position
+    public static final int kUnknownFiducialId = -1;
+
+    public static long cornerKey(int fiducialId, int cornerIndex) {
+        return ((long)fiducialId << 32) | (cornerIndex & 0xFFFFFFFFL);
+    }
+
+    public static int keyFiducialId(long key) {return (int)(key >> 32);}
+    public static int keyCornerIndex(long key) {return (int)key;}
+
     public void update(double[] tcornxy, double timestamp) {
-        var corners = tcornxyToTargetCorners(tcornxy);
-        if (corners.size() == 0) return;
+        if (tcornxy == null || tcornxy.length == 0 || tcornxy.length % 2 != 0) return;
 
-        update(corners, timestamp);
+        for (int i = 0; i < tcornxy.length / 2; i++) {
+            addCorner(cornerKey(kUnknownFiducialId, i), tcornxy[i*2], tcornxy[i*2+1], timestamp);
+        }
+        finishUpdate(timestamp);
     }
 
     @Override
     public void update(List<TargetCorner> corners, double timestamp) {
+        update(kUnknownFiducialId, corners, timestamp);
+    }
+
+    public void update(int fiducialId, List<TargetCorner> corners, double timestamp) {
         if (corners == null || corners.size() == 0) return;
-        
-        // clear unused corners
-        cornerBuffers.removeIf(b -> timestamp - b.lastKey() > bufferSeconds);
 
         for (int i = 0; i < corners.size(); i++) {
-            if (cornerBuffers.size() <= i) cornerBuffers.add(new TimedBuffer<TargetCorner>(bufferSeconds));
-            cornerBuffers.get(i).update(corners.get(i), timestamp);
+            addCorner(cornerKey(fiducialId, i), corners.get(i).x, corners.get(i).y, timestamp);
         }
+        finishUpdate(timestamp);
+    }
+
+    public void updateTargets(List<PhotonTrackedTarget> targets, double timestamp) {
+        if (targets == null || targets.size() == 0) return;
+
+        for (var target : targets) {
+            var corners = target.getDetectedCorners();
+            for (int i = 0; i < corners.size(); i++) {
+                addCorner(cornerKey(target.getFiducialId(), i), corners.get(i).x, corners.get(i).y, timestamp);
+            }
+        }
+        finishUpdate(timestamp);
+    }
+
+    // a single target's corners from primitive columns, x, y per corner starting at corner cornerOffset
+    public void update(int fiducialId, double[] corners, int cornerOffset, int cornerCount, double timestamp) {
+        if (cornerCount == 0) return;
+
+        for (int i = 0; i < cornerCount; i++) {
+            int c = cornerOffset + i;
+            addCorner(cornerKey(fiducialId, i), corners[c*2], corners[c*2+1], timestamp);
+        }
+        finishUpdate(timestamp);
+    }
+
+    // several targets' corners from primitive columns, e.g. as decoded by PhotonPacketDecoder
+    public void updateTargets(int targetCount, int[] fiducialIds, double[] corners, int[] cornerOffsets, int[] cornerCounts, double timestamp) {
+        if (targetCount == 0) return;
+
+        for (int t = 0; t < targetCount; t++) {
+            for (int i = 0; i < cornerCounts[t]; i++) {
+                int c = cornerOffsets[t] + i;
+                addCorner(cornerKey(fiducialIds[t], i), corners[c*2], corners[c*2+1], timestamp);
+            }
+        }
+        finishUpdate(timestamp);
+    }
+
+    private void addCorner(long key, double x, double y, double timestamp) {
+        int slot = keyToSlot.get(key);
+        if (slot == LongIntHashMap.kMissing) slot = addSlot(key);
+        row[0] = x;
+        row[1] = y;
+        cornerBuffers[slot].add(timestamp, row);
+    }
+
+    private int addSlot(long key) {
+        if (slotCount == slotKeys.length) {
+            slotKeys = Arrays.copyOf(slotKeys, slotCount * 2);
+            cornerBuffers = Arrays.copyOf(cornerBuffers, slotCount * 2);
+            cornerAccumulators = Arrays.copyOf(cornerAccumulators, slotCount * 2);
+            cornerMoments = Arrays.copyOf(cornerMoments, slotCount * 2);
+            cornerExtremes = Arrays.copyOf(cornerExtremes, slotCount * 2);
+            sortedSlots = new int[slotCount * 2];
+        }
+        int slot = slotCount++;
+        slotKeys[slot] = key;
+        cornerBuffers[slot] = new SampleWindow(2, bufferSeconds, compactStorage);
+        cornerAccumulators[slot] = new CompositeAccumulator();
+        cornerMoments[slot] = cornerAccumulators[slot].attach(new MomentAccumulator(0, 1));
+        cornerExtremes[slot] = cornerAccumulators[slot].attach(new MinMaxAccumulator(0, 1));
+        cornerBuffers[slot].setAccumulator(cornerAccumulators[slot]);
+        keyToSlot.put(key, slot);
+        return slot;
+    }
+
+    // moves the last slot into the removed one so slots stay dense
+    private void removeSlot(int slot) {
+        keyToSlot.remove(slotKeys[slot]);
+        int last = --slotCount;
+        if (slot != last) {
+            slotKeys[slot] = slotKeys[last];
+            cornerBuffers[slot] = cornerBuffers[last];
+            cornerAccumulators[slot] = cornerAccumulators[last];
+            cornerMoments[slot] = cornerMoments[last];
+            cornerExtremes[slot] = cornerExtremes[last];
+            keyToSlot.put(slotKeys[slot], slot);
+        }
+        cornerBuffers[last] = null;
+        cornerAccumulators[last] = null;
+        cornerMoments[last] = null;
+        cornerExtremes[last] = null;
+    }
+
+    private void finishUpdate(double timestamp) {
+        // clear unused corners
+        for (int s = slotCount - 1; s >= 0; s--) {
+            if (cornerBuffers[s].isEmpty() || timestamp - cornerBuffers[s].getLastTimestamp() > bufferSeconds) removeSlot(s);
+        }
+        if (slotCount == 0) return;
 
         calculate();
         publishNT();
     }
 
+    // slot indices ordered by corner key, i.e. by fiducial ID then corner index
+    private void sortSlots() {
+        for (int i = 0; i < slotCount; i++) {
+            int slot = i;
+            int j = i - 1;
+            while (j >= 0 && slotKeys[sortedSlots[j]] > slotKeys[slot]) {
+                sortedSlots[j + 1] = sortedSlots[j];
+                j--;
+            }
+            sortedSlots[j + 1] = slot;
+        }
+    }
+
+    public static final class Result {
+        public static final Result kEmpty = new Result(new long[]{}, List.of(), List.of(), List.of(), List.of(), new TargetCorner(0, 0), new TargetCorner(0, 0), new TargetCorner(0, 0), List.of());
+
+        private final long[] cornerKeys;
+        private final List<TargetCorner> cornerAvgs;
+        private final List<TargetCorner> cornerStdDevs;
+        private final List<TargetCorner> cornerMins;
+        private final List<TargetCorner> cornerMaxs;
+        private final TargetCorner totalCornerSqError;
+        private final TargetCorner totalCornerStdDev;
+        private final TargetCorner maxCornerRange;
+        private final List<Moments> cornerMoments;
+
+        Result(long[] cornerKeys, List<TargetCorner> cornerAvgs, List<TargetCorner> cornerStdDevs, List<TargetCorner> cornerMins, List<TargetCorner> cornerMaxs,
+               TargetCorner totalCornerSqError, TargetCorner totalCornerStdDev, TargetCorner maxCornerRange, List<Moments> cornerMoments) {
+            this.cornerKeys = cornerKeys.clone();
+            this.cornerAvgs = List.copyOf(cornerAvgs);
+            this.cornerStdDevs = List.copyOf(cornerStdDevs);
+            this.cornerMins = List.copyOf(cornerMins);
+            this.cornerMaxs = List.copyOf(cornerMaxs);
+            this.totalCornerSqError = totalCornerSqError;
+            this.totalCornerStdDev = totalCornerStdDev;
+            this.maxCornerRange = maxCornerRange;
+            this.cornerMoments = List.copyOf(cornerMoments);
+        }
+
+        // keys of the corners in list order, see cornerKey()
+        public long[] getCornerKeys() {return cornerKeys.clone();}
+        public List<TargetCorner> getCornerAvgs() {return cornerAvgs;}
+        public List<TargetCorner> getCornerStdDevs() {return cornerStdDevs;}
+        public List<TargetCorner> getCornerMins() {return cornerMins;}
+        public List<TargetCorner> getCornerMaxs() {return cornerMaxs;}
+        public TargetCorner getTotalCornerSqError() {return totalCornerSqError;}
+        public TargetCorner getTotalCornerStdDev() {return totalCornerStdDev;}
+        // the largest peak-to-peak x and y of any single corner
+        public TargetCorner getMaxCornerRange() {return maxCornerRange;}
+        public StatisticsSummary getSummary() {return StatisticsSummary.kEmpty.withCorners(cornerKeys, cornerMoments);}
+    }
+
     private void calculate() {
-        cornerAvgs = new ArrayList<>();
-        cornerStdDevs = new ArrayList<>();
+        var cornerAvgs = new ArrayList<TargetCorner>();
+        var cornerStdDevs = new ArrayList<TargetCorner>();
+        var cornerMins = new ArrayList<TargetCorner>();
+        var cornerMaxs = new ArrayList<TargetCorner>();
+        var moments = new ArrayList<Moments>(slotCount);
+        var keys = new long[slotCount];
         double totalCornerXSqErr = 0;
         double totalCornerYSqErr = 0;
-        int totalCorners = 0;
-        for (var buffer : cornerBuffers) {
-            var corners = buffer.values().toArray(TargetCorner[]::new);
-            totalCorners += corners.length;
-            var avg = Statistics.findAverage(corners);
-            var sqErr = Statistics.findSqErrorSum(avg, corners);
-            totalCornerXSqErr += sqErr.x;
-            totalCornerYSqErr += sqErr.y;
-            var stdDev = new TargetCorner(Math.sqrt(sqErr.x / corners.length), Math.sqrt(sqErr.y / corners.length));
-            cornerAvgs.add(avg);
-            cornerStdDevs.add(stdDev);
+        long totalCorners = 0;
+        double maxRangeX = 0;
+        double maxRangeY = 0;
+        sortSlots();
+        for (int k = 0; k < slotCount; k++) {
+            // per-corner moments are kept up to date by the sample windows
+            var cornerMoment = cornerMoments[sortedSlots[k]].result();
+            keys[k] = slotKeys[sortedSlots[k]];
+            totalCorners += cornerMoment.getCount();
+            totalCornerXSqErr += cornerMoment.getM2(0);
+            totalCornerYSqErr += cornerMoment.getM2(1);
+            cornerAvgs.add(new TargetCorner(cornerMoment.getMean(0), cornerMoment.getMean(1)));
+            cornerStdDevs.add(new TargetCorner(cornerMoment.getStdDev(0), cornerMoment.getStdDev(1)));
+            moments.add(cornerMoment);
+            // extremes are kept up to date by the sample windows as well
+            var extremes = cornerExtremes[sortedSlots[k]];
+            cornerMins.add(new TargetCorner(extremes.getMin(0), extremes.getMin(1)));
+            cornerMaxs.add(new TargetCorner(extremes.getMax(0), extremes.getMax(1)));
+            maxRangeX = Math.max(maxRangeX, extremes.getMax(0) - extremes.getMin(0));
+            maxRangeY = Math.max(maxRangeY, extremes.getMax(1) - extremes.getMin(1));
         }
-        totalCornerSqError = new TargetCorner(totalCornerXSqErr, totalCornerYSqErr);
-        totalCornerStdDev = new TargetCorner(
+        var totalCornerSqError = new TargetCorner(totalCornerXSqErr, totalCornerYSqErr);
+        var totalCornerStdDev = new TargetCorner(
             Math.sqrt(totalCornerXSqErr / totalCorners),
             Math.sqrt(totalCornerYSqErr / totalCorners)
         );
+        result = new Result(keys, cornerAvgs, cornerStdDevs, cornerMins, cornerMaxs, totalCornerSqError, totalCornerStdDev,
+            new TargetCorner(maxRangeX, maxRangeY), moments);
     }
 
     private void publishNT() {
+        if (!isPublishing()) return;
+        var totalCornerStdDev = result.totalCornerStdDev;
         cornerStdDevXPublisher.set(totalCornerStdDev.x);
         cornerStdDevYPublisher.set(totalCornerStdDev.y);
+        cornerRangeXPublisher.set(result.maxCornerRange.x);
+        cornerRangeYPublisher.set(result.maxCornerRange.y);
+    }
+
+    //----- Snapshot
+    // one array per corner of its key followed by {timestamp, x, y} rows
+    static final int kSnapshotRowLength = 3;
+
+    double[][] exportSamples() {
+        double[][] samples = new double[slotCount][];
+        for (int c = 0; c < slotCount; c++) {
+            var buffer = cornerBuffers[c];
+            double[] rows = new double[1 + buffer.size() * kSnapshotRowLength];
+            int i = 0;
+            rows[i++] = slotKeys[c];
+            for (int s = 0; s < buffer.size(); s++) {
+                rows[i++] = buffer.getTimestamp(s);
+                rows[i++] = buffer.get(s, 0);
+                rows[i++] = buffer.get(s, 1);
+            }
+            samples[c] = rows;
+        }
+        return samples;
+    }
+
+    // corner windows by slot, saved and restored in place by SnapshotFile
+    int getSlotCount() {return slotCount;}
+    long getSlotKey(int slot) {return slotKeys[slot];}
+    SampleWindow getSlotWindow(int slot) {return cornerBuffers[slot];}
+
+    SampleWindow getRestoreWindow(long key) {
+        int slot = keyToSlot.get(key);
+        if (slot == LongIntHashMap.kMissing) slot = addSlot(key);
+        return cornerBuffers[slot];
+    }
+
+    // after the corner windows were restored, their accumulators are already resynced
+    void finishRestore() {
+        double newest = Double.NEGATIVE_INFINITY;
+        for (int s = 0; s < slotCount; s++) newest = Math.max(newest, cornerBuffers[s].getLastTimestamp());
+        if (slotCount > 0) finishUpdate(newest);
+    }
+
+    @Override
+    public void close() {
+        if (!isPublishing()) return;
+        cornerStdDevXPublisher.close();
+        cornerStdDevYPublisher.close();
+        cornerRangeXPublisher.close();
+        cornerRangeYPublisher.close();
     }
 
-    public List<TargetCorner> getCornerAvgs() {return cornerAvgs;}
-    public List<TargetCorner> getCornerStdDevs() {return cornerStdDevs;}
-    public TargetCorner getTotalCornerStdDev() {return totalCornerStdDev;}
-    public TargetCorner getTotalCornerSqError() {return totalCornerSqError;}
+    public Result getResult() {return result;}
+    public List<TargetCorner> getCornerAvgs() {return result.getCornerAvgs();}
+    public List<TargetCorner> getCornerStdDevs() {return result.getCornerStdDevs();}
+    public TargetCorner getTotalCornerStdDev() {return result.getTotalCornerStdDev();}
+    public TargetCorner getTotalCornerSqError() {return result.getTotalCornerSqError();}
+    public TargetCorner getMaxCornerRange() {return result.getMaxCornerRange();}
+    public StatisticsSummary getSummary() {return result.getSummary();}
 
     public static List<TargetCorner> tcornxyToTargetCorners(double[] tcornxy) {
         var corners = new ArrayList<TargetCorner>();
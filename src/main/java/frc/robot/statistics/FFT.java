@@ -0,0 +1,68 @@
+package frc.robot.statistics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-place radix-2 complex FFT. A plan holds the bit reversal and twiddle tables of one
+// power-of-two size and is shared by every transform of that size.
+final class FFT {
+    private static final Map<Integer, FFT> plans = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int[] reversed;
+    private final double[] cos;
+    private final double[] sin;
+
+    static FFT forSize(int size) {
+        if (size < 1 || Integer.bitCount(size) != 1) throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        return plans.computeIfAbsent(size, FFT::new);
+    }
+
+    static int nextPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private FFT(int size) {
+        this.size = size;
+        int bits = Integer.numberOfTrailingZeros(size);
+        reversed = new int[size];
+        for (int i = 0; i < size; i++) reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        cos = new double[size / 2];
+        sin = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = Math.cos(-2 * Math.PI * i / size);
+            sin[i] = Math.sin(-2 * Math.PI * i / size);
+        }
+    }
+
+    int size() {return size;}
+
+    // Forward transform of the first size() values of re/im.
+    void transform(double[] re, double[] im) {
+        for (int i = 0; i < size; i++) {
+            int j = reversed[i];
+            if (j <= i) continue;
+            double t = re[i]; re[i] = re[j]; re[j] = t;
+            t = im[i]; im[i] = im[j]; im[j] = t;
+        }
+
+        for (int length = 2; length <= size; length <<= 1) {
+            int half = length >> 1;
+            int step = size / length;
+            for (int start = 0; start < size; start += length) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double xr = re[b] * wr - im[b] * wi;
+                    double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+}
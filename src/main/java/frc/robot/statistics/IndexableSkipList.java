@@ -0,0 +1,192 @@
+package frc.robot.statistics;
+
+import java.util.Arrays;
+
+// Sorted multiset of doubles with O(log n) insert, remove, access by rank and rank of a value.
+// Each link stores how many elements it skips, so ranks are summed on the way down. Nodes live in
+// pooled primitive arrays and are reused, so a sliding window does not allocate once warmed up.
+public class IndexableSkipList {
+    private static final int kMaxLevel = 16;
+    private static final int kNil = -1;
+    private static final int kHead = 0;
+
+    private double[] values;
+    // next[level][node] and the rank distance it covers, width(head -> nil) = size + 1
+    private int[][] next;
+    private int[][] width;
+    private int capacity;
+    private int freeList = kNil;
+    private int allocated = 1;
+    private int size = 0;
+    private long randomState = 0x9E3779B97F4A7C15L;
+
+    // scratch for the nodes before the insert/remove position on each level, and their ranks
+    private final int[] path = new int[kMaxLevel];
+    private final int[] pathRank = new int[kMaxLevel];
+
+    public IndexableSkipList() {
+        capacity = 16;
+        values = new double[capacity];
+        next = new int[kMaxLevel][capacity];
+        width = new int[kMaxLevel][capacity];
+        clear();
+    }
+
+    public int size() {return size;}
+
+    public void clear() {
+        for (int level = 0; level < kMaxLevel; level++) {
+            next[level][kHead] = kNil;
+            width[level][kHead] = 1;
+        }
+        freeList = kNil;
+        allocated = 1;
+        size = 0;
+    }
+
+    // finds the last node with a value below `value` on every level
+    private void findPath(double value) {
+        int node = kHead;
+        int rank = 0;
+        for (int level = kMaxLevel - 1; level >= 0; level--) {
+            while (next[level][node] != kNil && values[next[level][node]] < value) {
+                rank += width[level][node];
+                node = next[level][node];
+            }
+            path[level] = node;
+            pathRank[level] = rank;
+        }
+    }
+
+    public void add(double value) {
+        findPath(value);
+        int levels = randomLevels();
+        int node = allocateNode();
+        values[node] = value;
+        int rank = pathRank[0] + 1;
+        for (int level = 0; level < kMaxLevel; level++) {
+            int before = path[level];
+            if (level < levels) {
+                next[level][node] = next[level][before];
+                width[level][node] = pathRank[level] + width[level][before] - pathRank[0];
+                next[level][before] = node;
+                width[level][before] = rank - pathRank[level];
+            }
+            else {
+                width[level][before]++;
+            }
+        }
+        size++;
+    }
+
+    // Removes one element equal to value, returns false if there is none.
+    public boolean remove(double value) {
+        findPath(value);
+        int node = next[0][path[0]];
+        if (node == kNil || values[node] != value) return false;
+
+        for (int level = 0; level < kMaxLevel; level++) {
+            int before = path[level];
+            if (next[level][before] == node) {
+                width[level][before] += width[level][node] - 1;
+                next[level][before] = next[level][node];
+            }
+            else {
+                width[level][before]--;
+            }
+        }
+        next[0][node] = freeList;
+        freeList = node;
+        size--;
+        return true;
+    }
+
+    // value at a 0-based rank in ascending order
+    public double get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+
+        int target = index + 1;
+        int node = kHead;
+        int rank = 0;
+        for (int level = kMaxLevel - 1; level >= 0; level--) {
+            while (next[level][node] != kNil && rank + width[level][node] <= target) {
+                rank += width[level][node];
+                node = next[level][node];
+            }
+        }
+        return values[node];
+    }
+
+    // number of elements <= value
+    public int countAtMost(double value) {
+        int node = kHead;
+        int rank = 0;
+        for (int level = kMaxLevel - 1; level >= 0; level--) {
+            while (next[level][node] != kNil && values[next[level][node]] <= value) {
+                rank += width[level][node];
+                node = next[level][node];
+            }
+        }
+        return rank;
+    }
+
+    public double median() {
+        if (size == 0) return Double.NaN;
+        return size % 2 == 1 ? get(size / 2) : (get(size / 2 - 1) + get(size / 2)) / 2;
+    }
+
+    // Median absolute deviation from the median. The distances below and above the median are two
+    // sorted sequences read by rank, so their k-th smallest is a binary search: O(log^2 n).
+    public double medianAbsoluteDeviation() {
+        if (size == 0) return Double.NaN;
+        double median = median();
+        int below = countAtMost(median);
+        if (size % 2 == 1) return kthDistance(size / 2, median, below);
+        return (kthDistance(size / 2 - 1, median, below) + kthDistance(size / 2, median, below)) / 2;
+    }
+
+    // k-th smallest (0-based) of {median - get(below - 1 - i)} and {get(below + j) - median}
+    private double kthDistance(int k, double median, int below) {
+        int above = size - below;
+        int low = Math.max(0, k + 1 - above);
+        int high = Math.min(below, k + 1);
+        while (low <= high) {
+            // take `fromBelow` distances from below and the rest from above
+            int fromBelow = (low + high) >>> 1;
+            int fromAbove = k + 1 - fromBelow;
+            double lastBelow = fromBelow > 0 ? median - get(below - fromBelow) : Double.NEGATIVE_INFINITY;
+            double nextBelow = fromBelow < below ? median - get(below - fromBelow - 1) : Double.POSITIVE_INFINITY;
+            double lastAbove = fromAbove > 0 ? get(below + fromAbove - 1) - median : Double.NEGATIVE_INFINITY;
+            double nextAbove = fromAbove < above ? get(below + fromAbove) - median : Double.POSITIVE_INFINITY;
+            if (lastBelow > nextAbove) high = fromBelow - 1;
+            else if (lastAbove > nextBelow) low = fromBelow + 1;
+            else return Math.max(lastBelow, lastAbove);
+        }
+        throw new IllegalStateException("Unreachable for sorted input");
+    }
+
+    private int randomLevels() {
+        // xorshift64, each further level with probability 1/2
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        return 1 + Math.min(kMaxLevel - 1, Long.numberOfTrailingZeros(randomState | (1L << 62)));
+    }
+
+    private int allocateNode() {
+        if (freeList != kNil) {
+            int node = freeList;
+            freeList = next[0][node];
+            return node;
+        }
+        if (allocated == capacity) {
+            capacity *= 2;
+            values = Arrays.copyOf(values, capacity);
+            for (int level = 0; level < kMaxLevel; level++) {
+                next[level] = Arrays.copyOf(next[level], capacity);
+                width[level] = Arrays.copyOf(width[level], capacity);
+            }
+        }
+        return allocated++;
+    }
+}
@@ -0,0 +1,77 @@
+package frc.robot.statistics;
+
+import edu.wpi.first.math.MathUtil;
+
+// Keeps the windowed median and median absolute deviation (MAD) of some sample columns in
+// order-statistic windows that follow the sample window as an accumulator. A new sample is an
+// outlier when any column is more than `threshold` scaled MADs (1.4826 * MAD, the std dev for
+// normal noise) from the median, e.g. an ambiguous PnP solution flipping the pose. A column without
+// spread (MAD 0, e.g. quantized values) rejects nothing, as any change would be an outlier.
+public class MadOutlierFilter implements Accumulator<double[]> {
+    private static final double kMadToStdDev = 1.4826;
+    // too few samples for a meaningful median
+    private static final int kMinSamples = 10;
+
+    private final int[] columns;
+    private final boolean[] angular;
+    private final double threshold;
+    private final IndexableSkipList[] windows;
+    // angle columns are unwrapped around the first sample so medians near +-pi stay continuous
+    private final double[] angleReference;
+
+    // angularColumns must be a subset of columns
+    public MadOutlierFilter(int[] columns, int[] angularColumns, double threshold) {
+        this.columns = columns.clone();
+        this.threshold = threshold;
+        angular = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            for (int angularColumn : angularColumns) if (columns[i] == angularColumn) angular[i] = true;
+        }
+        windows = new IndexableSkipList[columns.length];
+        for (int i = 0; i < columns.length; i++) windows[i] = new IndexableSkipList();
+        angleReference = new double[columns.length];
+    }
+
+    private double value(double[] row, int i) {
+        double value = row[columns[i]];
+        return angular[i] ? angleReference[i] + MathUtil.angleModulus(value - angleReference[i]) : value;
+    }
+
+    public boolean isOutlier(double[] row) {
+        if (windows[0].size() < kMinSamples) return false;
+
+        for (int i = 0; i < columns.length; i++) {
+            double mad = windows[i].medianAbsoluteDeviation();
+            if (mad == 0) continue;
+            double deviation = Math.abs(value(row, i) - windows[i].median());
+            if (deviation > threshold * kMadToStdDev * mad) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void add(double timestamp, double[] row) {
+        if (windows[0].size() == 0) {
+            for (int i = 0; i < columns.length; i++) angleReference[i] = row[columns[i]];
+        }
+        for (int i = 0; i < columns.length; i++) windows[i].add(value(row, i));
+    }
+
+    @Override
+    public void remove(double timestamp, double[] row) {
+        for (int i = 0; i < columns.length; i++) windows[i].remove(value(row, i));
+    }
+
+    @Override
+    public void clear() {
+        for (var window : windows) window.clear();
+    }
+
+    // medians per column
+    @Override
+    public double[] result() {
+        double[] medians = new double[columns.length];
+        for (int i = 0; i < columns.length; i++) medians[i] = windows[i].median();
+        return medians;
+    }
+}
@@ -0,0 +1,8 @@
+package frc.robot.statistics;
+
+// An accumulator whose results over disjoint sample sets can be combined, e.g. sums and moments.
+// Windowed order statistics and extremes cannot, they only implement Accumulator.
+public interface MergeableAccumulator<R> extends Accumulator<R> {
+    // combines the result of an accumulator of the same kind over other samples into this one
+    void merge(R other);
+}
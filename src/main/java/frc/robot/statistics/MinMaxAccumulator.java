@@ -0,0 +1,256 @@
+package frc.robot.statistics;
+
+import edu.wpi.first.math.MathUtil;
+
+// Sliding-window minimum and maximum of some columns of the sample rows in amortized O(1) per
+// update. The window's values are mirrored in a primitive ring, and per column two monotonic deques
+// of sample sequence numbers hold the candidates: the front is the current extreme, and a new
+// sample drops every candidate it dominates from the back, since those can never be the extreme
+// again while it is in the window.
+//
+// Removals must follow SampleWindow's order: the oldest sample, or the newest one when it is
+// replaced by a sample with the same timestamp. The candidates the newest sample dropped stay in the
+// deque rings behind the back, so removing it puts them back in O(dropped) for the repeated polls of
+// one frame. Angle columns are unwrapped about their reference (the first row after a clear), so
+// their extremes may lie outside +-pi.
+public class MinMaxAccumulator implements Accumulator<MinMaxAccumulator.Extremes> {
+    private final int[] columns;
+    private final boolean[] angle;
+    private final double[] reference;
+
+    // ring of the window's timestamps and values (values[i][slot]), the oldest has sequence number headSeq
+    private int capacity = 16;
+    private double[] timestamps = new double[capacity];
+    private double[][] values;
+    private int head = 0;
+    private int size = 0;
+    private long headSeq = 0;
+
+    // per column rings of sequence numbers, values decreasing (max) or increasing (min) from the front
+    private long[][] maxDeques;
+    private long[][] minDeques;
+    private final int[] maxHeads, maxSizes, minHeads, minSizes;
+    // per column, how many candidates the newest sample dropped and the first of them, which the
+    // newest overwrote. Only valid until the next removal of the newest.
+    private final int[] maxDropped, minDropped;
+    private final long[] maxOverwritten, minOverwritten;
+    private boolean droppedKept = false;
+
+    public static final class Extremes {
+        public static final Extremes kEmpty = new Extremes(0, new double[]{}, new double[]{});
+
+        private final long count;
+        private final double[] min;
+        private final double[] max;
+
+        Extremes(long count, double[] min, double[] max) {
+            this.count = count;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getCount() {return count;}
+        // NaN without samples
+        public double getMin(int i) {return count == 0 || i >= min.length ? Double.NaN : min[i];}
+        public double getMax(int i) {return count == 0 || i >= max.length ? Double.NaN : max[i];}
+        public double getRange(int i) {return getMax(i) - getMin(i);}
+    }
+
+    // angleColumns must be a subset of columns
+    public MinMaxAccumulator(int[] columns, int[] angleColumns) {
+        this.columns = columns.clone();
+        angle = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            for (int angleColumn : angleColumns) angle[i] |= columns[i] == angleColumn;
+        }
+        reference = new double[columns.length];
+        values = new double[columns.length][capacity];
+        maxDeques = new long[columns.length][capacity];
+        minDeques = new long[columns.length][capacity];
+        maxHeads = new int[columns.length];
+        maxSizes = new int[columns.length];
+        minHeads = new int[columns.length];
+        minSizes = new int[columns.length];
+        maxDropped = new int[columns.length];
+        minDropped = new int[columns.length];
+        maxOverwritten = new long[columns.length];
+        minOverwritten = new long[columns.length];
+    }
+
+    public MinMaxAccumulator(int... columns) {
+        this(columns, new int[]{});
+    }
+
+    private double value(long seq, int i) {
+        return values[i][(head + (int)(seq - headSeq)) % capacity];
+    }
+
+    @Override
+    public void add(double timestamp, double[] row) {
+        if (size == 0) {
+            for (int i = 0; i < columns.length; i++) reference[i] = row[columns[i]];
+        }
+        if (size == capacity) grow();
+        int slot = (head + size) % capacity;
+        long seq = headSeq + size;
+        timestamps[slot] = timestamp;
+        size++;
+        for (int i = 0; i < columns.length; i++) {
+            double v = row[columns[i]];
+            if (angle[i]) v = reference[i] + MathUtil.angleModulus(v - reference[i]);
+            values[i][slot] = v;
+            pushMax(i, seq, v);
+            pushMin(i, seq, v);
+        }
+        droppedKept = true;
+    }
+
+    private void pushMax(int i, long seq, double v) {
+        var deque = maxDeques[i];
+        int before = maxSizes[i];
+        while (maxSizes[i] > 0 && value(deque[(maxHeads[i] + maxSizes[i] - 1) % capacity], i) <= v) maxSizes[i]--;
+        int back = (maxHeads[i] + maxSizes[i]) % capacity;
+        maxDropped[i] = before - maxSizes[i];
+        maxOverwritten[i] = deque[back];
+        deque[back] = seq;
+        maxSizes[i]++;
+    }
+
+    private void pushMin(int i, long seq, double v) {
+        var deque = minDeques[i];
+        int before = minSizes[i];
+        while (minSizes[i] > 0 && value(deque[(minHeads[i] + minSizes[i] - 1) % capacity], i) >= v) minSizes[i]--;
+        int back = (minHeads[i] + minSizes[i]) % capacity;
+        minDropped[i] = before - minSizes[i];
+        minOverwritten[i] = deque[back];
+        deque[back] = seq;
+        minSizes[i]++;
+    }
+
+    @Override
+    public void remove(double timestamp, double[] row) {
+        if (size <= 1) {
+            clear();
+            return;
+        }
+
+        // compact windows may hand back slightly different timestamps, take the closer end
+        double oldest = timestamps[head];
+        double newest = timestamps[(head + size - 1) % capacity];
+        if (Math.abs(timestamp - newest) < Math.abs(timestamp - oldest)) removeNewest();
+        else removeOldest();
+    }
+
+    private void removeOldest() {
+        for (int i = 0; i < columns.length; i++) {
+            if (maxDeques[i][maxHeads[i]] == headSeq) {
+                maxHeads[i] = (maxHeads[i] + 1) % capacity;
+                maxSizes[i]--;
+            }
+            if (minDeques[i][minHeads[i]] == headSeq) {
+                minHeads[i] = (minHeads[i] + 1) % capacity;
+                minSizes[i]--;
+            }
+        }
+        head = (head + 1) % capacity;
+        headSeq++;
+        size--;
+    }
+
+    private void removeNewest() {
+        long seq = headSeq + size - 1;
+        size--;
+        for (int i = 0; i < columns.length; i++) {
+            if (droppedKept) {
+                restoreMax(i);
+                restoreMin(i);
+                continue;
+            }
+            // the newest sample is always the back of both deques, after a second removal of the newest
+            // the samples it dropped are no longer kept and are re-pushed from the ring
+            maxSizes[i]--;
+            long from = maxSizes[i] > 0 ? maxDeques[i][(maxHeads[i] + maxSizes[i] - 1) % capacity] + 1 : headSeq;
+            for (long s = from; s < seq; s++) pushMax(i, s, value(s, i));
+
+            minSizes[i]--;
+            from = minSizes[i] > 0 ? minDeques[i][(minHeads[i] + minSizes[i] - 1) % capacity] + 1 : headSeq;
+            for (long s = from; s < seq; s++) pushMin(i, s, value(s, i));
+        }
+        droppedKept = false;
+    }
+
+    // Replaces the newest sample at the back with the candidates it dropped, except those evicted since.
+    private void restoreMax(int i) {
+        var deque = maxDeques[i];
+        deque[(maxHeads[i] + maxSizes[i] - 1) % capacity] = maxOverwritten[i];
+        maxSizes[i] += maxDropped[i] - 1;
+        while (maxSizes[i] > 0 && deque[maxHeads[i]] < headSeq) {
+            maxHeads[i] = (maxHeads[i] + 1) % capacity;
+            maxSizes[i]--;
+        }
+    }
+
+    private void restoreMin(int i) {
+        var deque = minDeques[i];
+        deque[(minHeads[i] + minSizes[i] - 1) % capacity] = minOverwritten[i];
+        minSizes[i] += minDropped[i] - 1;
+        while (minSizes[i] > 0 && deque[minHeads[i]] < headSeq) {
+            minHeads[i] = (minHeads[i] + 1) % capacity;
+            minSizes[i]--;
+        }
+    }
+
+    @Override
+    public void clear() {
+        head = 0;
+        size = 0;
+        headSeq = 0;
+        droppedKept = false;
+        for (int i = 0; i < columns.length; i++) {
+            maxHeads[i] = 0;
+            maxSizes[i] = 0;
+            minHeads[i] = 0;
+            minSizes[i] = 0;
+        }
+    }
+
+    public int size() {return size;}
+
+    // NaN without samples
+    public double getMin(int i) {return size == 0 ? Double.NaN : value(minDeques[i][minHeads[i]], i);}
+    public double getMax(int i) {return size == 0 ? Double.NaN : value(maxDeques[i][maxHeads[i]], i);}
+
+    @Override
+    public Extremes result() {
+        if (size == 0) return Extremes.kEmpty;
+        double[] min = new double[columns.length];
+        double[] max = new double[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            min[i] = getMin(i);
+            max[i] = getMax(i);
+        }
+        return new Extremes(size, min, max);
+    }
+
+    private void grow() {
+        int grownCapacity = capacity * 2;
+        var grownTimestamps = new double[grownCapacity];
+        for (int k = 0; k < size; k++) grownTimestamps[k] = timestamps[(head + k) % capacity];
+        timestamps = grownTimestamps;
+        for (int i = 0; i < columns.length; i++) {
+            var grownValues = new double[grownCapacity];
+            for (int k = 0; k < size; k++) grownValues[k] = values[i][(head + k) % capacity];
+            values[i] = grownValues;
+            var grownMax = new long[grownCapacity];
+            for (int k = 0; k < maxSizes[i]; k++) grownMax[k] = maxDeques[i][(maxHeads[i] + k) % capacity];
+            maxDeques[i] = grownMax;
+            maxHeads[i] = 0;
+            var grownMin = new long[grownCapacity];
+            for (int k = 0; k < minSizes[i]; k++) grownMin[k] = minDeques[i][(minHeads[i] + k) % capacity];
+            minDeques[i] = grownMin;
+            minHeads[i] = 0;
+        }
+        head = 0;
+        capacity = grownCapacity;
+    }
+}
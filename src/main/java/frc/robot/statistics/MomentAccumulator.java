@@ -0,0 +1,93 @@
+package frc.robot.statistics;
+
+// Running count, mean and M2 of some columns of the sample rows, with West's weighted form of
+// Welford's update for adding and removing samples and Chan's parallel formula for merging.
+// With unit weights the result is the plain sample mean and M2.
+public class MomentAccumulator implements WeightedAccumulator<Moments>, MergeableAccumulator<Moments> {
+    private final int[] columns;
+    private long count = 0;
+    private double totalWeight = 0;
+    private final double[] mean;
+    private final double[] m2;
+
+    public MomentAccumulator(int... columns) {
+        this.columns = columns.clone();
+        mean = new double[columns.length];
+        m2 = new double[columns.length];
+    }
+
+    @Override
+    public void add(double timestamp, double[] row, double weight) {
+        if (weight <= 0) return;
+
+        count++;
+        totalWeight += weight;
+        for (int i = 0; i < columns.length; i++) {
+            double value = row[columns[i]];
+            double delta = value - mean[i];
+            mean[i] += delta * weight / totalWeight;
+            // rounding of the mean can leave a tiny negative M2 for the first sample
+            m2[i] = Math.max(0, m2[i] + weight * delta * (value - mean[i]));
+        }
+    }
+
+    @Override
+    public void remove(double timestamp, double[] row, double weight) {
+        if (weight <= 0) return;
+        if (count <= 1 || totalWeight - weight <= 0) {
+            clear();
+            return;
+        }
+        count--;
+        totalWeight -= weight;
+        for (int i = 0; i < columns.length; i++) {
+            double value = row[columns[i]];
+            double delta = value - mean[i];
+            mean[i] -= delta * weight / totalWeight;
+            // rounding can leave a tiny negative M2 after removing most samples
+            m2[i] = Math.max(0, m2[i] - weight * delta * (value - mean[i]));
+        }
+    }
+
+    // the other samples are weighted with this accumulator's average weight per sample
+    @Override
+    public void merge(Moments other) {
+        if (other.getDimension() != columns.length) throw new IllegalArgumentException("Cannot merge moments of different dimension");
+        if (other.getCount() == 0) return;
+
+        double sampleWeight = count == 0 ? 1 : totalWeight / count;
+        double otherWeight = other.getCount() * sampleWeight;
+        double mergedWeight = totalWeight + otherWeight;
+        for (int i = 0; i < columns.length; i++) {
+            double delta = other.getMean(i) - mean[i];
+            m2[i] += other.getM2(i) * sampleWeight + delta*delta * (totalWeight * otherWeight / mergedWeight);
+            mean[i] += delta * otherWeight / mergedWeight;
+        }
+        count += other.getCount();
+        totalWeight = mergedWeight;
+    }
+
+    @Override
+    public void clear() {
+        count = 0;
+        totalWeight = 0;
+        for (int i = 0; i < columns.length; i++) {
+            mean[i] = 0;
+            m2[i] = 0;
+        }
+    }
+
+    // M2 is rescaled to the sample count, so Moments variance is the weighted variance
+    @Override
+    public Moments result() {
+        double[] countM2 = new double[columns.length];
+        for (int i = 0; i < columns.length; i++) countM2[i] = getM2(i);
+        return new Moments(count, mean, countM2);
+    }
+
+    public long getCount() {return count;}
+    public double getTotalWeight() {return totalWeight;}
+    public double getMean(int i) {return mean[i];}
+    public double getM2(int i) {return totalWeight == 0 ? 0 : m2[i] * count / totalWeight;}
+    public double getStdDev(int i) {return totalWeight == 0 ? 0 : Math.sqrt(m2[i] / totalWeight);}
+}
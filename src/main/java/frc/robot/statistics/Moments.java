@@ -0,0 +1,50 @@
+package frc.robot.statistics;
+
+import java.util.Arrays;
+
+// Immutable count, mean and sum of squared errors (M2) per dimension. Two Moments over disjoint
+// sample sets combine exactly with the parallel formula of Chan et al.
+public class Moments {
+    private final long count;
+    private final double[] mean;
+    private final double[] m2;
+
+    public Moments(long count, double[] mean, double[] m2) {
+        if (mean.length != m2.length) throw new IllegalArgumentException("Mean and M2 dimensions differ");
+        this.count = count;
+        this.mean = mean.clone();
+        this.m2 = m2.clone();
+    }
+
+    public static Moments empty(int dimension) {
+        return new Moments(0, new double[dimension], new double[dimension]);
+    }
+
+    public Moments merge(Moments other) {
+        if (other.mean.length != mean.length) throw new IllegalArgumentException("Cannot merge moments of different dimension");
+        if (other.count == 0) return this;
+        if (count == 0) return other;
+
+        long n = count + other.count;
+        double[] mergedMean = new double[mean.length];
+        double[] mergedM2 = new double[mean.length];
+        for (int i = 0; i < mean.length; i++) {
+            double delta = other.mean[i] - mean[i];
+            mergedMean[i] = mean[i] + delta * other.count / n;
+            mergedM2[i] = m2[i] + other.m2[i] + delta*delta * ((double)count * other.count / n);
+        }
+        return new Moments(n, mergedMean, mergedM2);
+    }
+
+    public long getCount() {return count;}
+    public int getDimension() {return mean.length;}
+    public double getMean(int i) {return mean[i];}
+    public double getM2(int i) {return m2[i];}
+    public double getVariance(int i) {return count == 0 ? 0 : m2[i] / count;}
+    public double getStdDev(int i) {return Math.sqrt(getVariance(i));}
+
+    @Override
+    public String toString() {
+        return "Moments(n=" + count + ", mean=" + Arrays.toString(mean) + ", m2=" + Arrays.toString(m2) + ")";
+    }
+}
@@ -0,0 +1,119 @@
+package frc.robot.statistics;
+
+// Power spectrum and overlapping Allan variance of one irregularly sampled time series. The series
+// is resampled by linear interpolation onto a uniform grid ending at its newest sample, then the
+// spectrum is a Hann-windowed periodogram by FFT and the Allan variance uses prefix sums, O(n log n)
+// together. White noise shows as a flat spectrum and an Allan deviation falling as 1/sqrt(tau),
+// drift as rising low-frequency power and an Allan deviation that levels off or grows.
+//
+// Work buffers are reused between calls, so one instance must not be used by several threads.
+public class NoiseAnalysis {
+    private double[] grid = new double[0];
+    private double[] re = new double[0];
+    private double[] im = new double[0];
+    private double[] prefixSums = new double[0];
+
+    // Spectrum bins of a grid with this interval and FFT size, in Hz.
+    public static double[] frequencies(double gridSeconds, int fftSize) {
+        double[] frequencies = new double[fftSize / 2 + 1];
+        for (int k = 0; k < frequencies.length; k++) frequencies[k] = k / (fftSize * gridSeconds);
+        return frequencies;
+    }
+
+    // Allan averaging times m * gridSeconds for m = 1, 2, 4, ... up to a third of the FFT size.
+    public static double[] taus(double gridSeconds, int fftSize) {
+        int count = 0;
+        for (int m = 1; m <= fftSize / 3; m <<= 1) count++;
+        double[] taus = new double[count];
+        for (int i = 0; i < count; i++) taus[i] = (1 << i) * gridSeconds;
+        return taus;
+    }
+
+    // Number of grid points the last `length` samples of the series cover, at most fftSize.
+    public static int gridLength(double[] timestamps, int length, double gridSeconds, int fftSize) {
+        if (length < 2) return 0;
+        double span = timestamps[length - 1] - timestamps[0];
+        return (int)Math.min(fftSize, Math.floor(span / gridSeconds + 1e-9) + 1);
+    }
+
+    // Adds the one-sided power spectral density (units^2/Hz, fftSize/2 + 1 bins) and the Allan
+    // variance per tau of the series to the sums, so several series can be averaged. Returns the
+    // number of taus computed, later ones did not fit the series.
+    public int accumulate(double[] timestamps, double[] values, int length, double gridSeconds, int fftSize,
+            double[] psdSum, double[] allanVarianceSum) {
+        int points = gridLength(timestamps, length, gridSeconds, fftSize);
+        if (points < 4) return 0;
+
+        resample(timestamps, values, length, gridSeconds, points);
+        addSpectrum(points, gridSeconds, fftSize, psdSum);
+        return addAllanVariance(points, allanVarianceSum);
+    }
+
+    // Linear interpolation onto timestamps[length - 1] - (points - 1 - j) * gridSeconds, in one
+    // forward pass over both the samples and the grid.
+    private void resample(double[] timestamps, double[] values, int length, double gridSeconds, int points) {
+        grid = Statistics.ensureCapacity(grid, points);
+        double end = timestamps[length - 1];
+        int i = 0;
+        for (int j = 0; j < points; j++) {
+            double t = end - (points - 1 - j) * gridSeconds;
+            while (i < length - 2 && timestamps[i + 1] < t) i++;
+            double t0 = timestamps[i];
+            double t1 = timestamps[i + 1];
+            double fraction = t1 > t0 ? Math.max(0, Math.min(1, (t - t0) / (t1 - t0))) : 0;
+            grid[j] = values[i] + (values[i + 1] - values[i]) * fraction;
+        }
+    }
+
+    private void addSpectrum(int points, double gridSeconds, int fftSize, double[] psdSum) {
+        re = Statistics.ensureCapacity(re, fftSize);
+        im = Statistics.ensureCapacity(im, fftSize);
+
+        double mean = Statistics.findColumnAverage(grid, points);
+        double windowSqSum = 0;
+        for (int j = 0; j < points; j++) {
+            double w = 0.5 - 0.5 * Math.cos(2 * Math.PI * j / (points - 1));
+            re[j] = (grid[j] - mean) * w;
+            im[j] = 0;
+            windowSqSum += w * w;
+        }
+        for (int j = points; j < fftSize; j++) {
+            re[j] = 0;
+            im[j] = 0;
+        }
+
+        FFT.forSize(fftSize).transform(re, im);
+
+        int bins = fftSize / 2 + 1;
+        for (int k = 0; k < bins; k++) {
+            double power = (re[k] * re[k] + im[k] * im[k]) * gridSeconds / windowSqSum;
+            // one-sided: fold in the negative frequencies except at DC and Nyquist
+            psdSum[k] += (k == 0 || k == fftSize / 2) ? power : 2 * power;
+        }
+    }
+
+    // Overlapping Allan variance of the grid values treated as rate samples.
+    private int addAllanVariance(int points, double[] allanVarianceSum) {
+        prefixSums = Statistics.ensureCapacity(prefixSums, points + 1);
+        prefixSums[0] = 0;
+        for (int j = 0; j < points; j++) prefixSums[j + 1] = prefixSums[j] + grid[j];
+
+        int computed = 0;
+        for (int i = 0; i < allanVarianceSum.length; i++) {
+            int m = 1 << i;
+            int terms = points - 2 * m + 1;
+            if (terms < 1) break;
+
+            double sum = 0;
+            for (int k = 0; k < terms; k++) {
+                double first = prefixSums[k + m] - prefixSums[k];
+                double second = prefixSums[k + 2 * m] - prefixSums[k + m];
+                double diff = (second - first) / m;
+                sum += diff * diff;
+            }
+            allanVarianceSum[i] += sum / (2.0 * terms);
+            computed++;
+        }
+        return computed;
+    }
+}
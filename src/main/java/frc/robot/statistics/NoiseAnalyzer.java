@@ -0,0 +1,219 @@
+package frc.robot.statistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+// Runs NoiseAnalysis over the buffered translation and corner series of the registered statistics
+// on a background thread, every periodSeconds or on demand, and publishes the results under
+// "<statistics name>/Noise/". Samples are copied on the calling thread, which must be the one
+// updating the statistics.
+public class NoiseAnalyzer implements AutoCloseable {
+    private final StatisticsRegistry registry;
+    private final double periodSeconds;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "NoiseAnalyzer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private double lastRunSeconds = Double.NEGATIVE_INFINITY;
+
+    // only touched on the executor thread
+    private final NoiseAnalysis analysis = new NoiseAnalysis();
+    private final Map<String, Publishers> publishers = new HashMap<>();
+    private double[] timestampColumn = new double[0];
+    private double[] valueColumn = new double[0];
+
+    public static final class Result {
+        private final double[] frequencies;
+        private final double[][] translationPsd;
+        private final double[][] cornerPsd;
+        private final double[] taus;
+        private final double[][] translationAllanDeviation;
+        private final double[][] cornerAllanDeviation;
+
+        Result(double[] frequencies, double[][] translationPsd, double[][] cornerPsd,
+                double[] taus, double[][] translationAllanDeviation, double[][] cornerAllanDeviation) {
+            this.frequencies = frequencies;
+            this.translationPsd = translationPsd;
+            this.cornerPsd = cornerPsd;
+            this.taus = taus;
+            this.translationAllanDeviation = translationAllanDeviation;
+            this.cornerAllanDeviation = cornerAllanDeviation;
+        }
+
+        public double[] getFrequencies() {return frequencies.clone();}
+        // axis 0, 1, 2 = x, y, z in meters^2/Hz
+        public double[] getTranslationPsd(int axis) {return translationPsd[axis].clone();}
+        // axis 0, 1 = x, y in pixels^2/Hz, averaged over the corners
+        public double[] getCornerPsd(int axis) {return cornerPsd[axis].clone();}
+        public double[] getTaus() {return taus.clone();}
+        public double[] getTranslationAllanDeviation(int axis) {return translationAllanDeviation[axis].clone();}
+        public double[] getCornerAllanDeviation(int axis) {return cornerAllanDeviation[axis].clone();}
+    }
+
+    private static final class Publishers {
+        final DoubleArrayPublisher frequencies;
+        final DoubleArrayPublisher taus;
+        final DoubleArrayPublisher[] translationPsd = new DoubleArrayPublisher[3];
+        final DoubleArrayPublisher[] cornerPsd = new DoubleArrayPublisher[2];
+        final DoubleArrayPublisher[] translationAllanDeviation = new DoubleArrayPublisher[3];
+        final DoubleArrayPublisher[] cornerAllanDeviation = new DoubleArrayPublisher[2];
+
+        Publishers(String tableName) {
+            var table = NetworkTableInstance.getDefault().getTable(tableName).getSubTable("Noise");
+            frequencies = table.getDoubleArrayTopic("FrequenciesHz").publish();
+            taus = table.getDoubleArrayTopic("AllanTausSeconds").publish();
+            String[] axes = {"X", "Y", "Z"};
+            for (int a = 0; a < 3; a++) {
+                translationPsd[a] = table.getDoubleArrayTopic("TranslationPSD" + axes[a]).publish();
+                translationAllanDeviation[a] = table.getDoubleArrayTopic("TranslationAllanDeviation" + axes[a]).publish();
+            }
+            for (int a = 0; a < 2; a++) {
+                cornerPsd[a] = table.getDoubleArrayTopic("CornerPSD" + axes[a]).publish();
+                cornerAllanDeviation[a] = table.getDoubleArrayTopic("CornerAllanDeviation" + axes[a]).publish();
+            }
+        }
+
+        void publish(Result result) {
+            frequencies.set(result.frequencies);
+            taus.set(result.taus);
+            for (int a = 0; a < 3; a++) {
+                translationPsd[a].set(result.translationPsd[a]);
+                translationAllanDeviation[a].set(result.translationAllanDeviation[a]);
+            }
+            for (int a = 0; a < 2; a++) {
+                cornerPsd[a].set(result.cornerPsd[a]);
+                cornerAllanDeviation[a].set(result.cornerAllanDeviation[a]);
+            }
+        }
+
+        void close() {
+            frequencies.close();
+            taus.close();
+            for (var publisher : translationPsd) publisher.close();
+            for (var publisher : translationAllanDeviation) publisher.close();
+            for (var publisher : cornerPsd) publisher.close();
+            for (var publisher : cornerAllanDeviation) publisher.close();
+        }
+    }
+
+    public NoiseAnalyzer(StatisticsRegistry registry, double periodSeconds) {
+        this.registry = registry;
+        this.periodSeconds = periodSeconds;
+    }
+
+    // Starts an analysis of all registered statistics once per period, unless the last one is still running.
+    public void poll(double nowSeconds) {
+        if (nowSeconds - lastRunSeconds < periodSeconds || !running.compareAndSet(false, true)) return;
+        lastRunSeconds = nowSeconds;
+
+        var all = registry.getAll();
+        var names = new String[all.size()];
+        var poseSamples = new double[all.size()][];
+        var cornerSamples = new double[all.size()][][];
+        for (int i = 0; i < all.size(); i++) {
+            names[i] = all.get(i).getName();
+            poseSamples[i] = all.get(i).exportPoseSamples();
+            cornerSamples[i] = all.get(i).exportCornerSamples();
+        }
+
+        executor.execute(() -> {
+            try {
+                for (int i = 0; i < names.length; i++) {
+                    var result = analyze(poseSamples[i], cornerSamples[i]);
+                    if (result == null) continue;
+                    publishers.computeIfAbsent(names[i], Publishers::new).publish(result);
+                }
+                // statistics that were unregistered, e.g. evicted tags
+                publishers.entrySet().removeIf(entry -> {
+                    if (registry.get(entry.getKey()) != null) return false;
+                    entry.getValue().close();
+                    return true;
+                });
+            }
+            finally {
+                running.set(false);
+            }
+        });
+    }
+
+    // On-demand analysis of one statistic, completes on the analyzer thread with null if it has too
+    // few samples. Call from the thread updating the statistic.
+    public CompletableFuture<Result> analyze(TargetStatistics stats) {
+        var poseSamples = stats.exportPoseSamples();
+        var cornerSamples = stats.exportCornerSamples();
+        return CompletableFuture.supplyAsync(() -> analyze(poseSamples, cornerSamples), executor);
+    }
+
+    // pose rows {timestamp, x, y, z, qw, qx, qy, qz}, corner arrays {key, then timestamp, x, y rows}
+    private Result analyze(double[] poseSamples, double[][] cornerSamples) {
+        int poseRows = poseSamples.length / PoseStatistics.kSnapshotRowLength;
+        if (poseRows < 8) return null;
+
+        // one grid for every series of the statistic, so corner spectra can be averaged bin by bin
+        timestampColumn = Statistics.ensureCapacity(timestampColumn, poseRows);
+        valueColumn = Statistics.ensureCapacity(valueColumn, poseRows);
+        readColumn(poseSamples, 0, PoseStatistics.kSnapshotRowLength, 0, poseRows, timestampColumn);
+        double gridSeconds = (timestampColumn[poseRows - 1] - timestampColumn[0]) / (poseRows - 1);
+        if (!(gridSeconds > 0)) return null;
+        int fftSize = FFT.nextPowerOfTwo(NoiseAnalysis.gridLength(timestampColumn, poseRows, gridSeconds, Integer.MAX_VALUE));
+
+        var frequencies = NoiseAnalysis.frequencies(gridSeconds, fftSize);
+        var taus = NoiseAnalysis.taus(gridSeconds, fftSize);
+        var translationPsd = new double[3][frequencies.length];
+        var translationAllanDeviation = new double[3][taus.length];
+        for (int a = 0; a < 3; a++) {
+            readColumn(poseSamples, 0, PoseStatistics.kSnapshotRowLength, 1 + a, poseRows, valueColumn);
+            int computed = analysis.accumulate(timestampColumn, valueColumn, poseRows, gridSeconds, fftSize, translationPsd[a], translationAllanDeviation[a]);
+            for (int i = 0; i < taus.length; i++) {
+                translationAllanDeviation[a][i] = i < computed ? Math.sqrt(translationAllanDeviation[a][i]) : 0;
+            }
+        }
+
+        var cornerPsd = new double[2][frequencies.length];
+        var cornerAllanVariance = new double[2][taus.length];
+        var cornerAllanDeviation = new double[2][taus.length];
+        var cornerTauCounts = new int[taus.length];
+        int cornerSeries = 0;
+        for (var rows : cornerSamples) {
+            int cornerRows = (rows.length - 1) / CornerStatistics.kSnapshotRowLength;
+            if (cornerRows < 8) continue;
+            timestampColumn = Statistics.ensureCapacity(timestampColumn, cornerRows);
+            valueColumn = Statistics.ensureCapacity(valueColumn, cornerRows);
+            readColumn(rows, 1, CornerStatistics.kSnapshotRowLength, 0, cornerRows, timestampColumn);
+            int computed = 0;
+            for (int a = 0; a < 2; a++) {
+                readColumn(rows, 1, CornerStatistics.kSnapshotRowLength, 1 + a, cornerRows, valueColumn);
+                computed = analysis.accumulate(timestampColumn, valueColumn, cornerRows, gridSeconds, fftSize, cornerPsd[a], cornerAllanVariance[a]);
+            }
+            if (computed == 0) continue;
+            for (int i = 0; i < computed; i++) cornerTauCounts[i]++;
+            cornerSeries++;
+        }
+        for (int a = 0; a < 2; a++) {
+            for (int k = 0; k < frequencies.length; k++) cornerPsd[a][k] = cornerSeries == 0 ? 0 : cornerPsd[a][k] / cornerSeries;
+            for (int i = 0; i < taus.length; i++) {
+                cornerAllanDeviation[a][i] = cornerTauCounts[i] == 0 ? 0 : Math.sqrt(cornerAllanVariance[a][i] / cornerTauCounts[i]);
+            }
+        }
+
+        return new Result(frequencies, translationPsd, cornerPsd, taus, translationAllanDeviation, cornerAllanDeviation);
+    }
+
+    private static void readColumn(double[] rows, int offset, int rowLength, int column, int count, double[] dest) {
+        for (int r = 0; r < count; r++) dest[r] = rows[offset + r * rowLength + column];
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
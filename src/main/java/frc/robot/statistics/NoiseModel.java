@@ -0,0 +1,230 @@
+package frc.robot.statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+// Noise of single-tag camera-to-target measurements as a function of distance and viewing angle
+// (0 = head-on). Deviations from the tag's windowed mean go into a fixed distance x angle grid of
+// squared-error sums, and a running least-squares line of std dev against distance, both O(1) per
+// sample. The model holds sums only, so it is small, can be merged, and is saved and reloaded
+// across restarts instead of raw samples.
+public class NoiseModel implements AutoCloseable {
+    private static final int kMagic = 0x564E4D31; // "VNM1"
+    // translation x, y, z (m) and rotation about z (rad) in the camera frame
+    public static final int kAxes = 4;
+    private static final String[] kAxisNames = {"X", "Y", "Z", "Yaw"};
+    // sqrt(pi/2) * E|e| = sigma for zero-mean normal e
+    private static final double kAbsToStdDev = Math.sqrt(Math.PI / 2);
+
+    private final String tableName;
+    private final double maxDistanceMeters;
+    private final int distanceBins;
+    private final int angleBins;
+
+    // per cell (distance-major) sample count and squared deviation sums per axis
+    private final long[] counts;
+    private final double[] sqErrorSums;
+    // running sums of the least-squares fit of sqrt(pi/2)|e| = intercept + slope * distance
+    private long fitCount = 0;
+    private double fitSumX = 0, fitSumXX = 0;
+    private final double[] fitSumY = new double[kAxes];
+    private final double[] fitSumXY = new double[kAxes];
+
+    private final DoubleArrayPublisher distanceEdgesPublisher;
+    private final DoubleArrayPublisher angleEdgesPublisher;
+    private final DoubleArrayPublisher countsPublisher;
+    private final DoubleArrayPublisher[] stdDevPublishers = new DoubleArrayPublisher[kAxes];
+    private final DoubleArrayPublisher fitInterceptPublisher;
+    private final DoubleArrayPublisher fitSlopePublisher;
+
+    public NoiseModel(String tableName, double maxDistanceMeters, int distanceBins, int angleBins) {
+        this.tableName = tableName;
+        this.maxDistanceMeters = maxDistanceMeters;
+        this.distanceBins = distanceBins;
+        this.angleBins = angleBins;
+        counts = new long[distanceBins * angleBins];
+        sqErrorSums = new double[distanceBins * angleBins * kAxes];
+
+        var table = NetworkTableInstance.getDefault().getTable(tableName);
+        distanceEdgesPublisher = table.getDoubleArrayTopic("DistanceBinEdgesMeters").publish();
+        angleEdgesPublisher = table.getDoubleArrayTopic("AngleBinEdgesDegrees").publish();
+        countsPublisher = table.getDoubleArrayTopic("Counts").publish();
+        for (int a = 0; a < kAxes; a++) stdDevPublishers[a] = table.getDoubleArrayTopic("StdDev" + kAxisNames[a]).publish();
+        fitInterceptPublisher = table.getDoubleArrayTopic("FitIntercept").publish();
+        fitSlopePublisher = table.getDoubleArrayTopic("FitSlopePerMeter").publish();
+    }
+
+    public String getName() {return tableName;}
+    public int getDistanceBins() {return distanceBins;}
+    public int getAngleBins() {return angleBins;}
+
+    // Adds one measurement's deviation from the windowed mean of the same tag.
+    public void add(Transform3d cameraToTarget, Translation3d meanTranslation, Rotation3d meanRotation) {
+        var t = cameraToTarget.getTranslation();
+        var q = cameraToTarget.getRotation().getQuaternion();
+        add(t.getX(), t.getY(), t.getZ(), q.getW(), q.getX(), q.getY(), q.getZ(), meanTranslation, meanRotation);
+    }
+
+    // camera-to-target translation and rotation quaternion
+    public void add(double x, double y, double z, double qw, double qx, double qy, double qz, Translation3d meanTranslation, Rotation3d meanRotation) {
+        double distance = Math.sqrt(x*x + y*y + z*z);
+        if (!(distance > 0)) return;
+
+        // angle between the tag's face normal (its x axis, the rotation's first column) and the direction back to the camera
+        double normalX = 1 - 2 * (qy*qy + qz*qz);
+        double normalY = 2 * (qx*qy + qw*qz);
+        double normalZ = 2 * (qx*qz - qw*qy);
+        double cos = -(normalX*x + normalY*y + normalZ*z) / distance;
+        double angle = Math.acos(MathUtil.clamp(cos, -1, 1));
+        // same convention as Rotation3d.getZ
+        double yaw = Math.atan2(2 * (qw*qz + qx*qy), 1 - 2 * (qy*qy + qz*qz));
+
+        int cell = cell(distance, angle);
+        counts[cell]++;
+        fitCount++;
+        fitSumX += distance;
+        fitSumXX += distance * distance;
+        for (int a = 0; a < kAxes; a++) {
+            double error = switch (a) {
+                case 0 -> x - meanTranslation.getX();
+                case 1 -> y - meanTranslation.getY();
+                case 2 -> z - meanTranslation.getZ();
+                default -> MathUtil.angleModulus(yaw - meanRotation.getZ());
+            };
+            sqErrorSums[cell * kAxes + a] += error * error;
+            double sigma = Math.abs(error) * kAbsToStdDev;
+            fitSumY[a] += sigma;
+            fitSumXY[a] += distance * sigma;
+        }
+    }
+
+    private int cell(double distance, double angleRadians) {
+        int d = (int)(distance / maxDistanceMeters * distanceBins);
+        int a = (int)(angleRadians / (Math.PI / 2) * angleBins);
+        return Math.min(d, distanceBins - 1) * angleBins + Math.min(a, angleBins - 1);
+    }
+
+    public long getCount(int distanceBin, int angleBin) {return counts[distanceBin * angleBins + angleBin];}
+
+    // std dev of the cell, NaN without samples
+    public double getStdDev(int distanceBin, int angleBin, int axis) {
+        int cell = distanceBin * angleBins + angleBin;
+        return counts[cell] == 0 ? Double.NaN : Math.sqrt(sqErrorSums[cell * kAxes + axis] / counts[cell]);
+    }
+
+    public double getStdDev(double distanceMeters, double angleRadians, int axis) {
+        int cell = cell(distanceMeters, angleRadians);
+        return getStdDev(cell / angleBins, cell % angleBins, axis);
+    }
+
+    public double getFitSlope(int axis) {
+        double denominator = fitCount * fitSumXX - fitSumX * fitSumX;
+        if (fitCount < 2 || denominator <= 1e-12) return 0;
+        return (fitCount * fitSumXY[axis] - fitSumX * fitSumY[axis]) / denominator;
+    }
+
+    public double getFitIntercept(int axis) {
+        if (fitCount == 0) return Double.NaN;
+        return (fitSumY[axis] - getFitSlope(axis) * fitSumX) / fitCount;
+    }
+
+    // std dev of an axis at a distance from the fitted line
+    public double getFitStdDev(double distanceMeters, int axis) {
+        return getFitIntercept(axis) + getFitSlope(axis) * distanceMeters;
+    }
+
+    public void publishNT() {
+        double[] distanceEdges = new double[distanceBins + 1];
+        for (int d = 0; d <= distanceBins; d++) distanceEdges[d] = maxDistanceMeters * d / distanceBins;
+        double[] angleEdges = new double[angleBins + 1];
+        for (int a = 0; a <= angleBins; a++) angleEdges[a] = 90.0 * a / angleBins;
+        double[] cellCounts = new double[counts.length];
+        for (int c = 0; c < counts.length; c++) cellCounts[c] = counts[c];
+
+        distanceEdgesPublisher.set(distanceEdges);
+        angleEdgesPublisher.set(angleEdges);
+        countsPublisher.set(cellCounts);
+        double[] intercepts = new double[kAxes];
+        double[] slopes = new double[kAxes];
+        for (int a = 0; a < kAxes; a++) {
+            double[] stdDevs = new double[counts.length];
+            for (int c = 0; c < counts.length; c++) stdDevs[c] = getStdDev(c / angleBins, c % angleBins, a);
+            stdDevPublishers[a].set(stdDevs);
+            intercepts[a] = getFitIntercept(a);
+            slopes[a] = getFitSlope(a);
+        }
+        fitInterceptPublisher.set(intercepts);
+        fitSlopePublisher.set(slopes);
+    }
+
+    //----- Persistence
+    // magic, distanceBins, angleBins, maxDistance, counts, sqErrorSums, fitCount, fitSumX, fitSumXX, fitSumY, fitSumXY
+    private ByteBuffer serialize() {
+        int bytes = 4 + 4 + 4 + 8 + counts.length * 8 + sqErrorSums.length * 8 + 8 + 8 + 8 + kAxes * 2 * 8;
+        var buffer = ByteBuffer.allocate(bytes);
+        buffer.putInt(kMagic).putInt(distanceBins).putInt(angleBins).putDouble(maxDistanceMeters);
+        for (long count : counts) buffer.putLong(count);
+        for (double sum : sqErrorSums) buffer.putDouble(sum);
+        buffer.putLong(fitCount).putDouble(fitSumX).putDouble(fitSumXX);
+        for (double sum : fitSumY) buffer.putDouble(sum);
+        for (double sum : fitSumXY) buffer.putDouble(sum);
+        return buffer.flip();
+    }
+
+    // Copies the sums on the calling thread and writes them on a background thread.
+    public CompletableFuture<Void> saveAsync(Path path) {
+        var bytes = serialize().array();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                var temp = path.resolveSibling(path.getFileName() + ".tmp");
+                Files.write(temp, bytes);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Adds the sums of a saved model with the same grid, returns false if the file is missing or
+    // incompatible (then nothing is loaded).
+    public boolean load(Path path) throws IOException {
+        if (!Files.exists(path)) return false;
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() != serialize().capacity()
+            || buffer.getInt() != kMagic
+            || buffer.getInt() != distanceBins
+            || buffer.getInt() != angleBins
+            || buffer.getDouble() != maxDistanceMeters) return false;
+
+        for (int c = 0; c < counts.length; c++) counts[c] += buffer.getLong();
+        for (int i = 0; i < sqErrorSums.length; i++) sqErrorSums[i] += buffer.getDouble();
+        fitCount += buffer.getLong();
+        fitSumX += buffer.getDouble();
+        fitSumXX += buffer.getDouble();
+        for (int a = 0; a < kAxes; a++) fitSumY[a] += buffer.getDouble();
+        for (int a = 0; a < kAxes; a++) fitSumXY[a] += buffer.getDouble();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        distanceEdgesPublisher.close();
+        angleEdgesPublisher.close();
+        countsPublisher.close();
+        for (var publisher : stdDevPublishers) publisher.close();
+        fitInterceptPublisher.close();
+        fitSlopePublisher.close();
+    }
+}
@@ -0,0 +1,168 @@
+package frc.robot.statistics;
+
+import edu.wpi.first.math.geometry.Pose3d;
+
+// Pairs two pose streams at the same instant and feeds their difference (first - second) into a
+// PoseStatistics. Each stream's pending samples stay sorted by timestamp and are consumed by a
+// streaming merge join: a sample is matched to the other stream's bracketing samples, interpolated
+// to its timestamp, once the other stream has a sample at or after it. Every sample is visited once.
+public class PoseMergeJoin {
+    private final PoseStatistics differenceStats;
+    private final double toleranceSeconds;
+    private final double maxWaitSeconds;
+
+    private final PoseStream first = new PoseStream();
+    private final PoseStream second = new PoseStream();
+    private final double[] interpolated = new double[PoseStream.kRowLength];
+    private long pairCount = 0;
+
+    // toleranceSeconds: max distance from a sample to each bracketing sample of the other stream
+    // maxWaitSeconds: how long a sample waits for the other stream before it is dropped unmatched
+    public PoseMergeJoin(String tableName, double bufferSeconds, double toleranceSeconds, double maxWaitSeconds) {
+        differenceStats = new PoseStatistics(tableName, bufferSeconds);
+        this.toleranceSeconds = toleranceSeconds;
+        this.maxWaitSeconds = maxWaitSeconds;
+    }
+
+    public PoseStatistics getDifferenceStats() {return differenceStats;}
+    public long getPairCount() {return pairCount;}
+
+    public void addFirst(Pose3d pose, double timestamp) {
+        if (pose != null && first.add(pose, timestamp)) join();
+    }
+
+    public void addSecond(Pose3d pose, double timestamp) {
+        if (pose != null && second.add(pose, timestamp)) join();
+    }
+
+    private void join() {
+        while (!first.isEmpty() && !second.isEmpty()) {
+            double firstTimestamp = first.firstTimestamp();
+            double secondTimestamp = second.firstTimestamp();
+            if (firstTimestamp == secondTimestamp) {
+                emit(first.rows, first.firstOffset(), second.rows, second.firstOffset());
+                first.pop();
+                second.pop();
+            }
+            else if (firstTimestamp < secondTimestamp) {
+                if (interpolate(second, firstTimestamp)) emit(first.rows, first.firstOffset(), interpolated, 0);
+                first.pop();
+            }
+            else {
+                if (interpolate(first, secondTimestamp)) emit(interpolated, 0, second.rows, second.firstOffset());
+                second.pop();
+            }
+        }
+        // only one stream has pending samples now, they wait for the other one up to maxWaitSeconds
+        first.dropOlderThan(first.newestTimestamp - maxWaitSeconds);
+        second.dropOlderThan(second.newestTimestamp - maxWaitSeconds);
+    }
+
+    // Interpolates the stream between its last consumed sample and its first pending sample, false
+    // unless they bracket the timestamp within the tolerance.
+    private boolean interpolate(PoseStream stream, double timestamp) {
+        if (!stream.hasPrevious) return false;
+
+        var prev = stream.previous;
+        var next = stream.rows;
+        int n = stream.firstOffset();
+        double prevTimestamp = prev[0];
+        double nextTimestamp = next[n];
+        // a late sample can be older than the last consumed one, e.g. after dropOlderThan()
+        if (!(prevTimestamp <= timestamp && timestamp <= nextTimestamp && prevTimestamp < nextTimestamp)) return false;
+        if (timestamp - prevTimestamp > toleranceSeconds || nextTimestamp - timestamp > toleranceSeconds) return false;
+
+        double t = (timestamp - prevTimestamp) / (nextTimestamp - prevTimestamp);
+        interpolated[0] = timestamp;
+        for (int c = 1; c <= 3; c++) interpolated[c] = prev[c] + (next[n + c] - prev[c]) * t;
+
+        // normalized lerp on the shorter arc, close enough to slerp over one frame
+        double dot = prev[4] * next[n + 4] + prev[5] * next[n + 5] + prev[6] * next[n + 6] + prev[7] * next[n + 7];
+        double sign = dot < 0 ? -1 : 1;
+        double norm = 0;
+        for (int c = 4; c <= 7; c++) {
+            interpolated[c] = prev[c] + (sign * next[n + c] - prev[c]) * t;
+            norm += interpolated[c] * interpolated[c];
+        }
+        norm = Math.sqrt(norm);
+        for (int c = 4; c <= 7; c++) interpolated[c] /= norm;
+        return true;
+    }
+
+    // rows: timestamp, x, y, z, qw, qx, qy, qz
+    private void emit(double[] a, int ia, double[] b, int ib) {
+        double aw = a[ia + 4], ax = a[ia + 5], ay = a[ia + 6], az = a[ia + 7];
+        double bw = b[ib + 4], bx = b[ib + 5], by = b[ib + 6], bz = b[ib + 7];
+        // rotation from second to first: qa * conj(qb)
+        double w = aw * bw + ax * bx + ay * by + az * bz;
+        double x = -aw * bx + ax * bw - ay * bz + az * by;
+        double y = -aw * by + ax * bz + ay * bw - az * bx;
+        double z = -aw * bz - ax * by + ay * bx + az * bw;
+        double sign = w < 0 ? -1 : 1;
+
+        differenceStats.update(
+            a[ia + 1] - b[ib + 1], a[ia + 2] - b[ib + 2], a[ia + 3] - b[ib + 3],
+            sign * w, sign * x, sign * y, sign * z,
+            a[ia]);
+        pairCount++;
+    }
+
+    // Pending samples of one stream in a primitive ring, oldest first.
+    private static final class PoseStream {
+        static final int kRowLength = 8;
+
+        private double[] rows = new double[16 * kRowLength];
+        private int capacity = 16;
+        private int head = 0;
+        private int size = 0;
+        private double newestTimestamp = Double.NEGATIVE_INFINITY;
+
+        // last consumed sample, the lower bracket for interpolating this stream
+        private final double[] previous = new double[kRowLength];
+        private boolean hasPrevious = false;
+
+        boolean isEmpty() {return size == 0;}
+        int firstOffset() {return head * kRowLength;}
+        double firstTimestamp() {return rows[head * kRowLength];}
+
+        boolean add(Pose3d pose, double timestamp) {
+            if (timestamp <= newestTimestamp) return false;
+            if (size == capacity) grow();
+
+            int i = (head + size) % capacity * kRowLength;
+            var q = pose.getRotation().getQuaternion();
+            rows[i] = timestamp;
+            rows[i + 1] = pose.getX();
+            rows[i + 2] = pose.getY();
+            rows[i + 3] = pose.getZ();
+            rows[i + 4] = q.getW();
+            rows[i + 5] = q.getX();
+            rows[i + 6] = q.getY();
+            rows[i + 7] = q.getZ();
+            size++;
+            newestTimestamp = timestamp;
+            return true;
+        }
+
+        void pop() {
+            System.arraycopy(rows, head * kRowLength, previous, 0, kRowLength);
+            hasPrevious = true;
+            head = (head + 1) % capacity;
+            size--;
+        }
+
+        void dropOlderThan(double timestamp) {
+            while (size > 0 && firstTimestamp() < timestamp) pop();
+        }
+
+        private void grow() {
+            var newRows = new double[capacity * 2 * kRowLength];
+            for (int k = 0; k < size; k++) {
+                System.arraycopy(rows, (head + k) % capacity * kRowLength, newRows, k * kRowLength, kRowLength);
+            }
+            rows = newRows;
+            capacity *= 2;
+            head = 0;
+        }
+    }
+}
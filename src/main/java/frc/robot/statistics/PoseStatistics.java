@@ -1,10 +1,15 @@
 package frc.robot.statistics;
 
+import java.util.List;
+
+import org.ejml.data.DMatrix4x4;
+import org.ejml.dense.fixed.CommonOps_DDF4;
+
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.networktables.DoublePublisher;
-import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.IntegerPublisher;
 
 public class PoseStatistics extends Statistics<Pose3d> {
     private final DoublePublisher trlAvgXPublisher;
@@ -19,62 +24,316 @@ public class PoseStatistics extends Statistics<Pose3d> {
     private final DoublePublisher rotStdDevXPublisher;
     private final DoublePublisher rotStdDevYPublisher;
     private final DoublePublisher rotStdDevZPublisher;
+    // per axis x, y, z
+    private final DoublePublisher[] trlMinPublishers = new DoublePublisher[3];
+    private final DoublePublisher[] trlMaxPublishers = new DoublePublisher[3];
+    private final DoublePublisher[] rotMinPublishers = new DoublePublisher[3];
+    private final DoublePublisher[] rotMaxPublishers = new DoublePublisher[3];
+    private static final String[] kAxisNames = {"X", "Y", "Z"};
+
+    // row columns: translation, rotation quaternion, rotation angles
+    static final int kX = 0, kY = 1, kZ = 2, kQW = 3, kQX = 4, kQY = 5, kQZ = 6, kRX = 7, kRY = 8, kRZ = 9;
+    static final int kColumns = 10;
 
-    private final TimedBuffer<Translation3d> targetTrlBuffer = new TimedBuffer<>();
-    private final TimedBuffer<Rotation3d> targetRotBuffer = new TimedBuffer<>();
+    private SampleWindow samples;
+    private final double[] row = new double[kColumns];
+    private boolean useCircularRotationStats = false;
     
-    private Translation3d translationAvg = new Translation3d();
-    private Translation3d translationStdDev = new Translation3d();
-    private Rotation3d rotationAvg = new Rotation3d();
-    private double[] rotationStdDev = {};
+    // replaced by calculate() with a single volatile write, safe to read from any thread
+    private volatile Result result = Result.kEmpty;
+
+    // translation moments and the quaternion accumulator follow the sample window incrementally
+    private final CompositeAccumulator weightedAccumulators = new CompositeAccumulator();
+    private final MomentAccumulator translationMoments = weightedAccumulators.attach(new MomentAccumulator(kX, kY, kZ));
+    private final QuaternionAccumulator quaternionSum = weightedAccumulators.attach(new QuaternionAccumulator(kQW, kQX, kQY, kQZ));
+    // optionally weights samples by their interval to the next one, a sample before a gap counts 100 ms at most
+    static final double kMaxWeightIntervalSeconds = 0.1;
+    private final TimeWeightedAccumulator<List<Object>> timeWeighting = new TimeWeightedAccumulator<>(weightedAccumulators, kMaxWeightIntervalSeconds);
+    // the accumulators of the window: the weighted ones through the time weighting, which holds back
+    // the newest sample, and the unweighted ones, which see every sample at once
+    private final CompositeAccumulator accumulators = new CompositeAccumulator();
+    // peak-to-peak of the translation and rotation angle axes
+    private final MinMaxAccumulator extremes = new MinMaxAccumulator(new int[]{kX, kY, kZ, kRX, kRY, kRZ}, new int[]{kRX, kRY, kRZ});
+    // attached while circular rotation stats are enabled
+    private final CircularStatistics circularRotStats = new CircularStatistics(kRX, kRY, kRZ);
+
+    // reused primitive columns for the rotation angle errors
+    private double[] xColumn = new double[0];
+    private double[] yColumn = new double[0];
+    private double[] zColumn = new double[0];
+    private double[] weightColumn = new double[0];
+
+    // optional robust filtering of new samples against the windowed median and MAD
+    static final double kOutlierThreshold = 3.5;
+    private MadOutlierFilter outlierFilter;
+    private double outlierThreshold = 0;
+    private long rejectedCount = 0;
+    private IntegerPublisher rejectedCountPublisher;
 
     public PoseStatistics(String tableName, double bufferSeconds) {
         super(tableName, bufferSeconds);
+        samples = new SampleWindow(kColumns, bufferSeconds, false);
+        timeWeighting.setEnabled(false);
+        accumulators.attach(timeWeighting);
+        accumulators.attach(extremes);
+        samples.setAccumulator(accumulators);
 
-        var table = NetworkTableInstance.getDefault().getTable(tableName);
-        trlAvgXPublisher = table.getDoubleTopic("TranslationAverageX").publish();
-        trlAvgYPublisher = table.getDoubleTopic("TranslationAverageY").publish();
-        trlAvgZPublisher = table.getDoubleTopic("TranslationAverageZ").publish();
-        rotAvgXPublisher = table.getDoubleTopic("RotationAverageXDeg").publish();
-        rotAvgYPublisher = table.getDoubleTopic("RotationAverageYDeg").publish();
-        rotAvgZPublisher = table.getDoubleTopic("RotationAverageZDeg").publish();
-        trlStdDevXPublisher = table.getDoubleTopic("TranslationStdDevX").publish();
-        trlStdDevYPublisher = table.getDoubleTopic("TranslationStdDevY").publish();
-        trlStdDevZPublisher = table.getDoubleTopic("TranslationStdDevZ").publish();
-        rotStdDevXPublisher = table.getDoubleTopic("RotationStdDevXDeg").publish();
-        rotStdDevYPublisher = table.getDoubleTopic("RotationStdDevYDeg").publish();
-        rotStdDevZPublisher = table.getDoubleTopic("RotationStdDevZDeg").publish();
+        var table = getTable();
+        trlAvgXPublisher = publishDouble(table, "TranslationAverageX");
+        trlAvgYPublisher = publishDouble(table, "TranslationAverageY");
+        trlAvgZPublisher = publishDouble(table, "TranslationAverageZ");
+        rotAvgXPublisher = publishDouble(table, "RotationAverageXDeg");
+        rotAvgYPublisher = publishDouble(table, "RotationAverageYDeg");
+        rotAvgZPublisher = publishDouble(table, "RotationAverageZDeg");
+        trlStdDevXPublisher = publishDouble(table, "TranslationStdDevX");
+        trlStdDevYPublisher = publishDouble(table, "TranslationStdDevY");
+        trlStdDevZPublisher = publishDouble(table, "TranslationStdDevZ");
+        rotStdDevXPublisher = publishDouble(table, "RotationStdDevXDeg");
+        rotStdDevYPublisher = publishDouble(table, "RotationStdDevYDeg");
+        rotStdDevZPublisher = publishDouble(table, "RotationStdDevZDeg");
+        for (int a = 0; a < 3; a++) {
+            trlMinPublishers[a] = publishDouble(table, "TranslationMin" + kAxisNames[a]);
+            trlMaxPublishers[a] = publishDouble(table, "TranslationMax" + kAxisNames[a]);
+            rotMinPublishers[a] = publishDouble(table, "RotationMin" + kAxisNames[a] + "Deg");
+            rotMaxPublishers[a] = publishDouble(table, "RotationMax" + kAxisNames[a] + "Deg");
+        }
     }
 
     @Override
     public void setBufferSeconds(double bufferSeconds) {
         super.setBufferSeconds(bufferSeconds);
-        if (targetTrlBuffer != null) targetTrlBuffer.setBufferSeconds(bufferSeconds);
-        if (targetRotBuffer != null) targetRotBuffer.setBufferSeconds(bufferSeconds);
+        if (samples != null) samples.setBufferSeconds(bufferSeconds);
+    }
+
+    // Circular per-axis mean/std dev in O(1) per update, instead of the quaternion average and O(n) spread
+    public void setCircularRotationStats(boolean enabled) {
+        if (enabled == useCircularRotationStats) return;
+        useCircularRotationStats = enabled;
+        if (enabled) {
+            accumulators.attach(circularRotStats);
+            // starts over from the current window
+            samples.setAccumulator(accumulators);
+        }
+        else {
+            accumulators.detach(circularRotStats);
+        }
+    }
+
+    // Compact storage keeps samples as float columns, accumulators stay double
+    public void setCompactStorage(boolean compact) {
+        if (compact == samples.isCompact()) return;
+        samples = new SampleWindow(samples, compact);
+        samples.setAccumulator(accumulators);
+    }
+
+    // Weights each sample by its interval to the next one, so frame bursts and gaps don't skew the
+    // spread toward the periods with the most frames. Circular rotation stats stay unweighted.
+    public void setTimeWeightedStats(boolean enabled) {
+        if (enabled == timeWeighting.isEnabled()) return;
+        timeWeighting.setEnabled(enabled);
+        samples.setAccumulator(accumulators);
+    }
+
+    // Drops new samples more than kOutlierThreshold scaled MADs from the windowed median of any
+    // translation or rotation angle axis before they reach the accumulators.
+    public void setOutlierRejection(boolean enabled) {
+        setOutlierThreshold(enabled ? kOutlierThreshold : 0);
+    }
+
+    // Same with another threshold in scaled MADs, 0 disables.
+    public void setOutlierThreshold(double threshold) {
+        if (threshold == outlierThreshold) return;
+        if (outlierFilter != null) {
+            accumulators.detach(outlierFilter);
+            outlierFilter = null;
+        }
+        outlierThreshold = threshold;
+        if (threshold > 0) {
+            outlierFilter = attachAccumulator(new MadOutlierFilter(
+                new int[]{kX, kY, kZ, kRX, kRY, kRZ}, new int[]{kRX, kRY, kRZ}, threshold));
+            if (rejectedCountPublisher == null && isPublishing()) {
+                rejectedCountPublisher = getTable().getIntegerTopic("RejectedSamples").publish();
+            }
+        }
+    }
+
+    public long getRejectedCount() {return rejectedCount;}
+
+    // Runs another accumulator over the pose sample rows (columns kX..kRZ), starting with the current
+    // window. Weighted accumulators are time weighted along with the moments when that is enabled.
+    public <A extends Accumulator<?>> A attachAccumulator(A accumulator) {
+        if (accumulator instanceof WeightedAccumulator) weightedAccumulators.attach(accumulator);
+        else accumulators.attach(accumulator);
+        samples.setAccumulator(accumulators);
+        return accumulator;
     }
 
     @Override
     public void update(Pose3d pose, double timestamp) {
         if (pose == null) return;
 
-        targetTrlBuffer.update(pose.getTranslation(), timestamp);
-        targetRotBuffer.update(pose.getRotation(), timestamp);
+        var q = pose.getRotation().getQuaternion();
+        update(pose.getX(), pose.getY(), pose.getZ(), q.getW(), q.getX(), q.getY(), q.getZ(), timestamp);
+    }
+
+    public void update(double x, double y, double z, double qw, double qx, double qy, double qz, double timestamp) {
+        if (!addSample(x, y, z, qw, qx, qy, qz, timestamp)) return;
 
         calculate();
         publishNT();
     }
 
+    private boolean addSample(double x, double y, double z, double qw, double qx, double qy, double qz, double timestamp) {
+        row[kX] = x;
+        row[kY] = y;
+        row[kZ] = z;
+        row[kQW] = qw;
+        row[kQX] = qx;
+        row[kQY] = qy;
+        row[kQZ] = qz;
+        // same conventions as Rotation3d.getX/Y/Z
+        row[kRX] = Math.atan2(2 * (qw*qx + qy*qz), 1 - 2 * (qx*qx + qy*qy));
+        double ratio = 2 * (qw*qy - qz*qx);
+        row[kRY] = Math.abs(ratio) >= 1 ? Math.copySign(Math.PI / 2, ratio) : Math.asin(ratio);
+        row[kRZ] = Math.atan2(2 * (qw*qz + qx*qy), 1 - 2 * (qy*qy + qz*qz));
+        if (outlierFilter != null && outlierFilter.isOutlier(row)) {
+            rejectedCount++;
+            if (rejectedCountPublisher != null) rejectedCountPublisher.set(rejectedCount);
+            // the window must still age out, or after a real pose change every new sample stays an outlier
+            samples.evict(timestamp);
+            return false;
+        }
+        return samples.add(timestamp, row);
+    }
+
+    public static final class Result {
+        public static final Result kEmpty = new Result(new Translation3d(), new Translation3d(), new Rotation3d(), new double[]{}, MinMaxAccumulator.Extremes.kEmpty, StatisticsSummary.kEmpty);
+
+        private final Translation3d translationAvg;
+        private final Translation3d translationStdDev;
+        private final Rotation3d rotationAvg;
+        private final double[] rotationStdDev;
+        // columns x, y, z, rx, ry, rz
+        private final MinMaxAccumulator.Extremes extremes;
+        private final StatisticsSummary summary;
+
+        Result(Translation3d translationAvg, Translation3d translationStdDev, Rotation3d rotationAvg, double[] rotationStdDev, MinMaxAccumulator.Extremes extremes, StatisticsSummary summary) {
+            this.translationAvg = translationAvg;
+            this.translationStdDev = translationStdDev;
+            this.rotationAvg = rotationAvg;
+            this.rotationStdDev = rotationStdDev.clone();
+            this.extremes = extremes;
+            this.summary = summary;
+        }
+
+        public Translation3d getTranslationAvg() {return translationAvg;}
+        public Translation3d getTranslationStdDev() {return translationStdDev;}
+        public Rotation3d getRotationAvg() {return rotationAvg;}
+        public double[] getRotationStdDev() {return rotationStdDev.clone();}
+        public Translation3d getTranslationMin() {return new Translation3d(extremes.getMin(0), extremes.getMin(1), extremes.getMin(2));}
+        public Translation3d getTranslationMax() {return new Translation3d(extremes.getMax(0), extremes.getMax(1), extremes.getMax(2));}
+        // radians about x, y, z, unwrapped about the window's first sample so min <= max
+        public double[] getRotationMin() {return new double[]{extremes.getMin(3), extremes.getMin(4), extremes.getMin(5)};}
+        public double[] getRotationMax() {return new double[]{extremes.getMax(3), extremes.getMax(4), extremes.getMax(5)};}
+        public StatisticsSummary getSummary() {return summary;}
+    }
+
     private void calculate() {
-        var trls = targetTrlBuffer.values().toArray(Translation3d[]::new);
-        translationAvg = Statistics.findAverage(trls);
-        translationStdDev = Statistics.findStdDev(translationAvg, trls);
+        int n = samples.size();
+        var translationAvg = new Translation3d(
+            translationMoments.getMean(0),
+            translationMoments.getMean(1),
+            translationMoments.getMean(2));
+        var translationStdDev = new Translation3d(
+            translationMoments.getStdDev(0),
+            translationMoments.getStdDev(1),
+            translationMoments.getStdDev(2));
 
-        var rots = targetRotBuffer.values().toArray(Rotation3d[]::new);
-        rotationAvg = Statistics.findAverage(rots);
-        rotationStdDev = Statistics.findStdDev(rotationAvg, rots);
+        int rotCount;
+        Rotation3d rotationAvg;
+        double[] rotationStdDev;
+        DMatrix4x4 rotAccum;
+        double[] rotSqErr;
+        if (useCircularRotationStats) {
+            rotCount = n;
+            rotationAvg = new Rotation3d(circularRotStats.getMean(0), circularRotStats.getMean(1), circularRotStats.getMean(2));
+            rotationStdDev = circularRotStats.getStdDev();
+            rotSqErr = new double[3];
+            for (int a = 0; a < 3; a++) rotSqErr[a] = rotationStdDev[a]*rotationStdDev[a] * rotCount;
+            // rank-one stand-in for the accumulator of samples clustered around the mean
+            rotAccum = Statistics.findQuaternionAccumulator(rotationAvg);
+            CommonOps_DDF4.scale(rotCount, rotAccum);
+        }
+        else {
+            rotCount = n;
+            rotAccum = quaternionSum.result();
+            rotationAvg = Statistics.findAverage(rotAccum);
+
+            // the angle errors depend on the average, so they still take one pass over the window
+            xColumn = Statistics.ensureCapacity(xColumn, n);
+            yColumn = Statistics.ensureCapacity(yColumn, n);
+            zColumn = Statistics.ensureCapacity(zColumn, n);
+            samples.copyColumn(kRX, xColumn);
+            samples.copyColumn(kRY, yColumn);
+            samples.copyColumn(kRZ, zColumn);
+            if (timeWeighting.isEnabled()) {
+                weightColumn = Statistics.ensureCapacity(weightColumn, n);
+                double totalWeight = findIntervalWeights(samples, weightColumn);
+                rotSqErr = new double[]{
+                    Statistics.findColumnAngleSqErrorSum(rotationAvg.getX(), xColumn, weightColumn, n),
+                    Statistics.findColumnAngleSqErrorSum(rotationAvg.getY(), yColumn, weightColumn, n),
+                    Statistics.findColumnAngleSqErrorSum(rotationAvg.getZ(), zColumn, weightColumn, n)
+                };
+                rotationStdDev = new double[3];
+                for (int a = 0; a < 3; a++) {
+                    rotationStdDev[a] = totalWeight == 0 ? 0 : Math.sqrt(rotSqErr[a] / totalWeight);
+                    // back to a sample-count M2 like the translation moments
+                    rotSqErr[a] = rotationStdDev[a]*rotationStdDev[a] * rotCount;
+                }
+            }
+            else {
+                rotSqErr = new double[]{
+                    Statistics.findColumnAngleSqErrorSum(rotationAvg.getX(), xColumn, n),
+                    Statistics.findColumnAngleSqErrorSum(rotationAvg.getY(), yColumn, n),
+                    Statistics.findColumnAngleSqErrorSum(rotationAvg.getZ(), zColumn, n)
+                };
+                rotationStdDev = new double[]{
+                    Math.sqrt(rotSqErr[0] / rotCount),
+                    Math.sqrt(rotSqErr[1] / rotCount),
+                    Math.sqrt(rotSqErr[2] / rotCount)
+                };
+            }
+        }
+
+        var summary = new StatisticsSummary(
+            translationMoments.result(),
+            new Moments(rotCount, new double[]{rotationAvg.getX(), rotationAvg.getY(), rotationAvg.getZ()}, rotSqErr),
+            rotAccum,
+            new long[]{},
+            List.of());
+        result = new Result(translationAvg, translationStdDev, rotationAvg, rotationStdDev, extremes.result(), summary);
+    }
+
+    // same weights as TimeWeightedAccumulator, the newest sample has none yet
+    static double findIntervalWeights(SampleWindow samples, double[] weights) {
+        int n = samples.size();
+        samples.copyTimestamps(weights);
+        double totalWeight = 0;
+        for (int i = 0; i < n - 1; i++) {
+            weights[i] = Math.min(weights[i + 1] - weights[i], kMaxWeightIntervalSeconds);
+            totalWeight += weights[i];
+        }
+        if (n > 0) weights[n - 1] = 0;
+        return totalWeight;
     }
 
     private void publishNT() {
+        if (!isPublishing()) return;
+        var result = this.result;
+        var translationAvg = result.translationAvg;
+        var translationStdDev = result.translationStdDev;
+        var rotationAvg = result.rotationAvg;
+        var rotationStdDev = result.rotationStdDev;
         trlAvgXPublisher.set(translationAvg.getX());
         trlAvgYPublisher.set(translationAvg.getY());
         trlAvgZPublisher.set(translationAvg.getZ());
@@ -87,10 +346,68 @@ public class PoseStatistics extends Statistics<Pose3d> {
         rotStdDevXPublisher.set(Math.toDegrees(rotationStdDev[0]));
         rotStdDevYPublisher.set(Math.toDegrees(rotationStdDev[1]));
         rotStdDevZPublisher.set(Math.toDegrees(rotationStdDev[2]));
+        var windowExtremes = result.extremes;
+        for (int a = 0; a < 3; a++) {
+            trlMinPublishers[a].set(windowExtremes.getMin(a));
+            trlMaxPublishers[a].set(windowExtremes.getMax(a));
+            rotMinPublishers[a].set(Math.toDegrees(windowExtremes.getMin(3 + a)));
+            rotMaxPublishers[a].set(Math.toDegrees(windowExtremes.getMax(3 + a)));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!isPublishing()) return;
+        trlAvgXPublisher.close();
+        trlAvgYPublisher.close();
+        trlAvgZPublisher.close();
+        rotAvgXPublisher.close();
+        rotAvgYPublisher.close();
+        rotAvgZPublisher.close();
+        trlStdDevXPublisher.close();
+        trlStdDevYPublisher.close();
+        trlStdDevZPublisher.close();
+        rotStdDevXPublisher.close();
+        rotStdDevYPublisher.close();
+        rotStdDevZPublisher.close();
+        for (int a = 0; a < 3; a++) {
+            trlMinPublishers[a].close();
+            trlMaxPublishers[a].close();
+            rotMinPublishers[a].close();
+            rotMaxPublishers[a].close();
+        }
+        if (rejectedCountPublisher != null) rejectedCountPublisher.close();
+    }
+
+    //----- Snapshot
+    // rows of {timestamp, x, y, z, qw, qx, qy, qz}
+    static final int kSnapshotRowLength = 8;
+
+    double[] exportSamples() {
+        double[] rows = new double[samples.size() * kSnapshotRowLength];
+        int i = 0;
+        for (int s = 0; s < samples.size(); s++) {
+            rows[i++] = samples.getTimestamp(s);
+            for (int c = kX; c <= kQZ; c++) rows[i++] = samples.get(s, c);
+        }
+        return rows;
+    }
+
+    // restored in place by SnapshotFile, all columns
+    SampleWindow getSampleWindow() {return samples;}
+
+    // after the sample window was restored, its accumulators are already resynced
+    void finishRestore() {
+        if (samples.isEmpty()) return;
+
+        calculate();
+        publishNT();
     }
 
-    public Translation3d getTranslationAvg() {return translationAvg;}
-    public Translation3d getTranslationStdDev() {return translationStdDev;}
-    public Rotation3d getRotationAvg() {return rotationAvg;}
-    public double[] getRotationStdDev() {return rotationStdDev;}
+    public Result getResult() {return result;}
+    public Translation3d getTranslationAvg() {return result.getTranslationAvg();}
+    public Translation3d getTranslationStdDev() {return result.getTranslationStdDev();}
+    public Rotation3d getRotationAvg() {return result.getRotationAvg();}
+    public double[] getRotationStdDev() {return result.getRotationStdDev();}
+    public StatisticsSummary getSummary() {return result.getSummary();}
 }
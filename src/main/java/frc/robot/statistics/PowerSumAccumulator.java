@@ -0,0 +1,131 @@
+package frc.robot.statistics;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.MathUtil;
+
+// Sums of the first four powers of some columns of the sample rows, taken about a reference value
+// per column (the first row after a clear) so the powers stay small. Gives the central moments up
+// to the fourth in O(1) per update, e.g. for the uncertainty of a variance estimate. Angle columns
+// are wrapped about their reference.
+public class PowerSumAccumulator implements MergeableAccumulator<PowerSumAccumulator.PowerSums> {
+    private final int[] columns;
+    private final boolean[] angle;
+    private long count = 0;
+    private final double[] reference;
+    // sums[power - 1][i] = sum over samples of (value - reference)^power
+    private final double[][] sums = new double[4][];
+
+    public static final class PowerSums {
+        private final long count;
+        private final double[] reference;
+        private final double[][] sums;
+
+        PowerSums(long count, double[] reference, double[][] sums) {
+            this.count = count;
+            this.reference = reference.clone();
+            this.sums = new double[4][];
+            for (int p = 0; p < 4; p++) this.sums[p] = sums[p].clone();
+        }
+
+        public long getCount() {return count;}
+    }
+
+    public PowerSumAccumulator(int[] columns, int[] angleColumns) {
+        this.columns = columns.clone();
+        angle = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            for (int angleColumn : angleColumns) angle[i] |= columns[i] == angleColumn;
+        }
+        reference = new double[columns.length];
+        for (int p = 0; p < 4; p++) sums[p] = new double[columns.length];
+    }
+
+    @Override
+    public void add(double timestamp, double[] row) {
+        if (count == 0) {
+            for (int i = 0; i < columns.length; i++) reference[i] = row[columns[i]];
+        }
+        count++;
+        accumulate(row, 1);
+    }
+
+    @Override
+    public void remove(double timestamp, double[] row) {
+        if (count <= 1) {
+            clear();
+            return;
+        }
+        count--;
+        accumulate(row, -1);
+    }
+
+    private void accumulate(double[] row, double sign) {
+        for (int i = 0; i < columns.length; i++) {
+            double d = row[columns[i]] - reference[i];
+            if (angle[i]) d = MathUtil.angleModulus(d);
+            double d2 = d * d;
+            sums[0][i] += sign * d;
+            sums[1][i] += sign * d2;
+            sums[2][i] += sign * d2 * d;
+            sums[3][i] += sign * d2 * d2;
+        }
+    }
+
+    // Shifts the other sums to this reference with the binomial expansion before adding them.
+    @Override
+    public void merge(PowerSums other) {
+        if (other.count == 0) return;
+        if (count == 0) System.arraycopy(other.reference, 0, reference, 0, columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            double shift = other.reference[i] - reference[i];
+            if (angle[i]) shift = MathUtil.angleModulus(shift);
+            double s0 = other.count, s1 = other.sums[0][i], s2 = other.sums[1][i], s3 = other.sums[2][i], s4 = other.sums[3][i];
+            double h = shift, h2 = h * h;
+            sums[0][i] += s1 + h * s0;
+            sums[1][i] += s2 + 2 * h * s1 + h2 * s0;
+            sums[2][i] += s3 + 3 * h * s2 + 3 * h2 * s1 + h2 * h * s0;
+            sums[3][i] += s4 + 4 * h * s3 + 6 * h2 * s2 + 4 * h2 * h * s1 + h2 * h2 * s0;
+        }
+        count += other.count;
+    }
+
+    @Override
+    public void clear() {
+        count = 0;
+        for (int p = 0; p < 4; p++) Arrays.fill(sums[p], 0);
+    }
+
+    @Override
+    public PowerSums result() {
+        return new PowerSums(count, reference, sums);
+    }
+
+    public long getCount() {return count;}
+
+    // population variance of the i-th column
+    public double getVariance(int i) {
+        if (count == 0) return 0;
+        double mean = sums[0][i] / count;
+        return Math.max(0, sums[1][i] / count - mean * mean);
+    }
+
+    public double getFourthCentralMoment(int i) {
+        if (count == 0) return 0;
+        double mean = sums[0][i] / count;
+        double mean2 = mean * mean;
+        return Math.max(0, sums[3][i] / count - 4 * mean * sums[2][i] / count + 6 * mean2 * sums[1][i] / count - 3 * mean2 * mean2);
+    }
+
+    // Width of the confidence interval of the i-th column's std dev relative to the std dev, from
+    // the large-sample variance of the sample variance (m4 - m2^2) / n, which holds for any
+    // distribution with a fourth moment. z is the normal quantile, e.g. 1.96 for 95%.
+    public double getStdDevRelativeConfidenceWidth(int i, double z) {
+        if (count < 2) return Double.POSITIVE_INFINITY;
+        double m2 = getVariance(i);
+        if (m2 <= 0) return 0;
+        double varianceOfVariance = Math.max(0, getFourthCentralMoment(i) - m2 * m2) / count;
+        // delta method: se(s) = se(s^2) / (2s), the interval spans 2z se(s)
+        return z * Math.sqrt(varianceOfVariance) / m2;
+    }
+}
@@ -0,0 +1,63 @@
+package frc.robot.statistics;
+
+import org.ejml.data.DMatrix4x4;
+import org.ejml.dense.fixed.CommonOps_DDF4;
+
+// Running sum of q*q^T over four quaternion columns of the sample rows, in the (x, y, z, w) order
+// of Statistics.findQuaternionAccumulator so the result can be passed to findAverage(DMatrix4x4).
+public class QuaternionAccumulator implements WeightedAccumulator<DMatrix4x4>, MergeableAccumulator<DMatrix4x4> {
+    private final int wColumn, xColumn, yColumn, zColumn;
+    private final DMatrix4x4 sum = new DMatrix4x4();
+    private long count = 0;
+
+    public QuaternionAccumulator(int wColumn, int xColumn, int yColumn, int zColumn) {
+        this.wColumn = wColumn;
+        this.xColumn = xColumn;
+        this.yColumn = yColumn;
+        this.zColumn = zColumn;
+    }
+
+    @Override
+    public void add(double timestamp, double[] row, double weight) {
+        if (weight <= 0) return;
+        accumulate(row, weight);
+        count++;
+    }
+
+    @Override
+    public void remove(double timestamp, double[] row, double weight) {
+        if (weight <= 0) return;
+        if (count <= 1) {
+            clear();
+            return;
+        }
+        accumulate(row, -weight);
+        count--;
+    }
+
+    private void accumulate(double[] row, double sign) {
+        double x = row[xColumn], y = row[yColumn], z = row[zColumn], w = row[wColumn];
+        sum.a11 += sign*x*x; sum.a12 += sign*x*y; sum.a13 += sign*x*z; sum.a14 += sign*x*w;
+        sum.a21 += sign*y*x; sum.a22 += sign*y*y; sum.a23 += sign*y*z; sum.a24 += sign*y*w;
+        sum.a31 += sign*z*x; sum.a32 += sign*z*y; sum.a33 += sign*z*z; sum.a34 += sign*z*w;
+        sum.a41 += sign*w*x; sum.a42 += sign*w*y; sum.a43 += sign*w*z; sum.a44 += sign*w*w;
+    }
+
+    @Override
+    public void merge(DMatrix4x4 other) {
+        CommonOps_DDF4.addEquals(sum, other);
+    }
+
+    @Override
+    public void clear() {
+        CommonOps_DDF4.fill(sum, 0);
+        count = 0;
+    }
+
+    @Override
+    public DMatrix4x4 result() {
+        return sum.copy();
+    }
+
+    public long getCount() {return count;}
+}
@@ -0,0 +1,246 @@
+package frc.robot.statistics;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+// Projects the field layout's tag corners through an estimated camera pose and the camera
+// intrinsics, and accumulates the pixel residuals to the detected corners per tag. Corner points
+// are computed once from the layout, and each frame runs over preallocated primitive arrays.
+public class ReprojectionStatistics extends Statistics<List<PhotonTrackedTarget>> {
+    // per-frame residual columns of one tag: RMS over its corners, mean residual x and y
+    private static final int kRms = 0, kMeanX = 1, kMeanY = 2;
+
+    private final DoublePublisher rmsErrorPublisher;
+    private final DoubleArrayPublisher tagIdsPublisher;
+    private final DoubleArrayPublisher tagRmsErrorPublisher;
+    private final DoubleArrayPublisher tagResidualXPublisher;
+    private final DoubleArrayPublisher tagResidualYPublisher;
+
+    // field corners of each layout tag as x, y, z triples, 4 corners per tag
+    private final double[] fieldCorners;
+    private final int[] tagIds;
+    // tag ID -> tag index, -1 for IDs not in the layout
+    private final int[] tagIndexById;
+    private final SampleWindow[] tagResiduals;
+    private final MomentAccumulator[] tagMoments;
+
+    private boolean hasIntrinsics = false;
+    private double fx, fy, cx, cy;
+    // OpenCV k1, k2, p1, p2, k3
+    private final double[] distortion = new double[5];
+
+    private Pose3d cameraPose = new Pose3d();
+    private final double[] cameraRotation = new double[9];
+    private final double[] projected = new double[8];
+    private final double[] detected = new double[8];
+    private final double[] row = new double[3];
+
+    // Tag corners in the tag frame (x out of the tag face), in the order of detected corners:
+    // bottom-left, bottom-right, top-right, top-left as seen by the camera. Same model as PhotonLib's TargetModel.
+    public ReprojectionStatistics(String tableName, double bufferSeconds, AprilTagFieldLayout layout, double tagSizeMeters) {
+        super(tableName, bufferSeconds);
+
+        var tags = layout.getTags();
+        int maxId = 0;
+        for (var tag : tags) maxId = Math.max(maxId, tag.ID);
+        tagIndexById = new int[maxId + 1];
+        Arrays.fill(tagIndexById, -1);
+        tagIds = new int[tags.size()];
+        fieldCorners = new double[tags.size() * 12];
+        tagResiduals = new SampleWindow[tags.size()];
+        tagMoments = new MomentAccumulator[tags.size()];
+
+        double half = tagSizeMeters / 2;
+        double[][] tagFrameCorners = {{0, -half, -half}, {0, half, -half}, {0, half, half}, {0, -half, half}};
+        for (int t = 0; t < tags.size(); t++) {
+            var tag = tags.get(t);
+            tagIds[t] = tag.ID;
+            tagIndexById[tag.ID] = t;
+            for (int c = 0; c < 4; c++) {
+                var corner = tag.pose.transformBy(new Transform3d(
+                    new Translation3d(tagFrameCorners[c][0], tagFrameCorners[c][1], tagFrameCorners[c][2]),
+                    new Rotation3d())).getTranslation();
+                fieldCorners[t*12 + c*3] = corner.getX();
+                fieldCorners[t*12 + c*3 + 1] = corner.getY();
+                fieldCorners[t*12 + c*3 + 2] = corner.getZ();
+            }
+            tagResiduals[t] = new SampleWindow(3, bufferSeconds, false);
+            tagMoments[t] = new MomentAccumulator(kRms, kMeanX, kMeanY);
+            tagResiduals[t].setAccumulator(tagMoments[t]);
+        }
+
+        var table = NetworkTableInstance.getDefault().getTable(tableName);
+        rmsErrorPublisher = table.getDoubleTopic("ReprojectionRmsErrorPx").publish();
+        tagIdsPublisher = table.getDoubleArrayTopic("ReprojectionTagIds").publish();
+        tagRmsErrorPublisher = table.getDoubleArrayTopic("ReprojectionTagRmsErrorPx").publish();
+        tagResidualXPublisher = table.getDoubleArrayTopic("ReprojectionTagResidualXPx").publish();
+        tagResidualYPublisher = table.getDoubleArrayTopic("ReprojectionTagResidualYPx").publish();
+    }
+
+    @Override
+    public void setBufferSeconds(double bufferSeconds) {
+        super.setBufferSeconds(bufferSeconds);
+        if (tagResiduals != null) for (var window : tagResiduals) window.setBufferSeconds(bufferSeconds);
+    }
+
+    // cameraMatrix row-major 3x3, distortion in OpenCV order (k1, k2, p1, p2, k3), missing terms are 0
+    public void setCameraIntrinsics(double[] cameraMatrix, double[] distortionCoeffs) {
+        fx = cameraMatrix[0];
+        cx = cameraMatrix[2];
+        fy = cameraMatrix[4];
+        cy = cameraMatrix[5];
+        Arrays.fill(distortion, 0);
+        if (distortionCoeffs != null) System.arraycopy(distortionCoeffs, 0, distortion, 0, Math.min(5, distortionCoeffs.length));
+        hasIntrinsics = true;
+    }
+
+    public boolean hasCameraIntrinsics() {return hasIntrinsics;}
+
+    // the camera's field pose of the following update()
+    public void setCameraPose(Pose3d cameraPose) {
+        this.cameraPose = cameraPose;
+    }
+
+    @Override
+    public void update(List<PhotonTrackedTarget> targets, double timestamp) {
+        update(cameraPose, targets, timestamp);
+    }
+
+    public void update(Pose3d cameraPose, List<PhotonTrackedTarget> targets, double timestamp) {
+        if (!hasIntrinsics || cameraPose == null || targets == null || targets.isEmpty()) return;
+
+        setCameraRotation(cameraPose);
+        boolean updated = false;
+        for (var target : targets) {
+            var corners = target.getDetectedCorners();
+            if (corners == null || corners.size() != 4) continue;
+            for (int c = 0; c < 4; c++) {
+                detected[c*2] = corners.get(c).x;
+                detected[c*2 + 1] = corners.get(c).y;
+            }
+            updated |= addTag(target.getFiducialId(), detected, 0, cameraPose, timestamp);
+        }
+        if (updated) publishNT(timestamp);
+    }
+
+    // targets as primitive columns, corners x, y per corner from each target's cornerOffsets entry
+    public void update(Pose3d cameraPose, int targetCount, int[] fiducialIds, double[] corners, int[] cornerOffsets, int[] cornerCounts, double timestamp) {
+        if (!hasIntrinsics || cameraPose == null || targetCount == 0) return;
+
+        setCameraRotation(cameraPose);
+        boolean updated = false;
+        for (int i = 0; i < targetCount; i++) {
+            if (cornerCounts[i] != 4) continue;
+            updated |= addTag(fiducialIds[i], corners, cornerOffsets[i] * 2, cameraPose, timestamp);
+        }
+        if (updated) publishNT(timestamp);
+    }
+
+    // field -> camera rotation, the transpose of the camera's orientation, row-major
+    private void setCameraRotation(Pose3d cameraPose) {
+        var q = cameraPose.getRotation().getQuaternion();
+        double w = q.getW(), x = q.getX(), y = q.getY(), z = q.getZ();
+        cameraRotation[0] = 1 - 2*(y*y + z*z); cameraRotation[1] = 2*(x*y + w*z);     cameraRotation[2] = 2*(x*z - w*y);
+        cameraRotation[3] = 2*(x*y - w*z);     cameraRotation[4] = 1 - 2*(x*x + z*z); cameraRotation[5] = 2*(y*z + w*x);
+        cameraRotation[6] = 2*(x*z + w*y);     cameraRotation[7] = 2*(y*z - w*x);     cameraRotation[8] = 1 - 2*(x*x + y*y);
+    }
+
+    // adds the residuals of a tag's 4 detected corners (x, y pairs from offset), false if not in the layout or not in view
+    private boolean addTag(int id, double[] corners, int offset, Pose3d cameraPose, double timestamp) {
+        if (id < 0 || id >= tagIndexById.length || tagIndexById[id] < 0) return false;
+        int t = tagIndexById[id];
+        if (!project(t, cameraPose.getX(), cameraPose.getY(), cameraPose.getZ())) return false;
+
+        double sqSum = 0, sumX = 0, sumY = 0;
+        for (int c = 0; c < 4; c++) {
+            double dx = corners[offset + c*2] - projected[c*2];
+            double dy = corners[offset + c*2 + 1] - projected[c*2 + 1];
+            sqSum += dx*dx + dy*dy;
+            sumX += dx;
+            sumY += dy;
+        }
+        row[kRms] = Math.sqrt(sqSum / 4);
+        row[kMeanX] = sumX / 4;
+        row[kMeanY] = sumY / 4;
+        tagResiduals[t].add(timestamp, row);
+        return true;
+    }
+
+    // projects the 4 corners of a tag into `projected`, false if any is behind the camera
+    private boolean project(int t, double tx, double ty, double tz) {
+        var r = cameraRotation;
+        for (int c = 0; c < 4; c++) {
+            int i = t*12 + c*3;
+            double px = fieldCorners[i] - tx, py = fieldCorners[i + 1] - ty, pz = fieldCorners[i + 2] - tz;
+            // camera frame (x forward, y left, z up)
+            double forward = r[0]*px + r[1]*py + r[2]*pz;
+            double left = r[3]*px + r[4]*py + r[5]*pz;
+            double up = r[6]*px + r[7]*py + r[8]*pz;
+            if (forward <= 1e-6) return false;
+
+            // normalized image coordinates (x right, y down), then OpenCV distortion
+            double u = -left / forward;
+            double v = -up / forward;
+            double r2 = u*u + v*v;
+            double radial = 1 + r2 * (distortion[0] + r2 * (distortion[1] + r2 * distortion[4]));
+            double ud = u * radial + 2*distortion[2]*u*v + distortion[3]*(r2 + 2*u*u);
+            double vd = v * radial + distortion[2]*(r2 + 2*v*v) + 2*distortion[3]*u*v;
+            projected[c*2] = fx * ud + cx;
+            projected[c*2 + 1] = fy * vd + cy;
+        }
+        return true;
+    }
+
+    private void publishNT(double timestamp) {
+        int active = 0;
+        for (int t = 0; t < tagIds.length; t++) {
+            if (!tagResiduals[t].isEmpty() && timestamp - tagResiduals[t].getLastTimestamp() <= bufferSeconds) active++;
+        }
+        double[] ids = new double[active];
+        double[] rms = new double[active];
+        double[] residualX = new double[active];
+        double[] residualY = new double[active];
+        double totalSq = 0;
+        long totalCount = 0;
+        int k = 0;
+        for (int t = 0; t < tagIds.length; t++) {
+            if (tagResiduals[t].isEmpty() || timestamp - tagResiduals[t].getLastTimestamp() > bufferSeconds) continue;
+            var moments = tagMoments[t];
+            ids[k] = tagIds[t];
+            // RMS over the window from the mean and variance of the per-frame RMS
+            double meanRms = moments.getMean(kRms);
+            double sqMean = meanRms*meanRms + moments.getM2(kRms) / moments.getCount();
+            rms[k] = Math.sqrt(sqMean);
+            residualX[k] = moments.getMean(kMeanX);
+            residualY[k] = moments.getMean(kMeanY);
+            totalSq += sqMean * moments.getCount();
+            totalCount += moments.getCount();
+            k++;
+        }
+        rmsErrorPublisher.set(totalCount == 0 ? 0 : Math.sqrt(totalSq / totalCount));
+        tagIdsPublisher.set(ids);
+        tagRmsErrorPublisher.set(rms);
+        tagResidualXPublisher.set(residualX);
+        tagResidualYPublisher.set(residualY);
+    }
+
+    @Override
+    public void close() {
+        rmsErrorPublisher.close();
+        tagIdsPublisher.close();
+        tagRmsErrorPublisher.close();
+        tagResidualXPublisher.close();
+        tagResidualYPublisher.close();
+    }
+}
@@ -0,0 +1,271 @@
+package frc.robot.statistics;
+
+import java.nio.DoubleBuffer;
+
+// Time-windowed ring of fixed-width sample rows stored as primitive columns, oldest row at index 0.
+// Compact storage keeps values as float columns and timestamps as float deltas from a base time,
+// roughly halving the memory of double columns for large windows.
+// An attached Accumulator sees every row as it is added and again as it is evicted.
+public class SampleWindow {
+    // float timestamp deltas are rebased before they lose sub-millisecond precision
+    private static final double kMaxCompactDeltaSeconds = 1024;
+    // the accumulator is rebuilt from the stored rows this often so removal round-off cannot build up
+    private static final int kResyncRemovals = 1 << 14;
+
+    private final int columns;
+    private final boolean compact;
+    private double bufferSeconds;
+
+    private int capacity;
+    private int head = 0;
+    private int size = 0;
+
+    private double[] timestamps;
+    private double[][] values;
+    private double baseTimestamp = 0;
+    private float[] timestampDeltas;
+    private float[][] compactValues;
+
+    private Accumulator<?> accumulator;
+    private final double[] storedRow;
+    private int removalsSinceResync = 0;
+
+    public SampleWindow(int columns, double bufferSeconds, boolean compact) {
+        this.columns = columns;
+        this.bufferSeconds = bufferSeconds;
+        this.compact = compact;
+        storedRow = new double[columns];
+        allocate(16);
+    }
+
+    public SampleWindow(SampleWindow other, boolean compact) {
+        this(other.columns, other.bufferSeconds, compact);
+        double[] row = new double[columns];
+        for (int i = 0; i < other.size; i++) {
+            for (int c = 0; c < columns; c++) row[c] = other.get(i, c);
+            add(other.getTimestamp(i), row);
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        if (compact) {
+            timestampDeltas = new float[capacity];
+            compactValues = new float[columns][capacity];
+        }
+        else {
+            timestamps = new double[capacity];
+            values = new double[columns][capacity];
+        }
+    }
+
+    public void setBufferSeconds(double bufferSeconds) {
+        this.bufferSeconds = bufferSeconds;
+    }
+
+    // Clears the accumulator and feeds it the rows already in the window. Rows are passed at stored
+    // precision, so in compact storage removals cancel their additions exactly.
+    public void setAccumulator(Accumulator<?> accumulator) {
+        this.accumulator = accumulator;
+        if (accumulator != null) resync();
+    }
+
+    public Accumulator<?> getAccumulator() {return accumulator;}
+
+    private void resync() {
+        accumulator.clear();
+        for (int k = 0; k < size; k++) accumulator.add(getTimestamp(k), readRow(k));
+        removalsSinceResync = 0;
+    }
+
+    // row at stored precision, valid until the next call
+    private double[] readRow(int offset) {
+        for (int c = 0; c < columns; c++) storedRow[c] = get(offset, c);
+        return storedRow;
+    }
+
+    public int size() {return size;}
+    public int columns() {return columns;}
+    public boolean isCompact() {return compact;}
+    public boolean isEmpty() {return size == 0;}
+
+    private int index(int offset) {
+        int i = head + offset;
+        return i >= capacity ? i - capacity : i;
+    }
+
+    public double getTimestamp(int offset) {
+        int i = index(offset);
+        return compact ? baseTimestamp + timestampDeltas[i] : timestamps[i];
+    }
+
+    public double getLastTimestamp() {
+        return size == 0 ? Double.NEGATIVE_INFINITY : getTimestamp(size - 1);
+    }
+
+    public double get(int offset, int column) {
+        int i = index(offset);
+        return compact ? compactValues[column][i] : values[column][i];
+    }
+
+    public void copyTimestamps(double[] dest) {
+        for (int k = 0; k < size; k++) dest[k] = getTimestamp(k);
+    }
+
+    // Copies the first `size()` values of one column, oldest first.
+    public void copyColumn(int column, double[] dest) {
+        int first = Math.min(size, capacity - head);
+        if (compact) {
+            var src = compactValues[column];
+            for (int k = 0; k < first; k++) dest[k] = src[head + k];
+            for (int k = first; k < size; k++) dest[k] = src[k - first];
+        }
+        else {
+            System.arraycopy(values[column], head, dest, 0, first);
+            System.arraycopy(values[column], 0, dest, first, size - first);
+        }
+    }
+
+    // Writes the newest `count` rows column by column at double precision: `count` timestamps, then
+    // `count` values of each column.
+    public void writeColumns(DoubleBuffer dest, int count) {
+        int first = size - count;
+        if (compact) {
+            for (int k = first; k < size; k++) dest.put(getTimestamp(k));
+            for (int c = 0; c < columns; c++) {
+                for (int k = first; k < size; k++) dest.put(compactValues[c][index(k)]);
+            }
+        }
+        else {
+            putColumn(dest, timestamps, first, count);
+            for (int c = 0; c < columns; c++) putColumn(dest, values[c], first, count);
+        }
+    }
+
+    private void putColumn(DoubleBuffer dest, double[] column, int offset, int count) {
+        int start = index(offset);
+        int firstPart = Math.min(count, capacity - start);
+        dest.put(column, start, firstPart);
+        dest.put(column, 0, count - firstPart);
+    }
+
+    // Replaces the rows with the newest `count` of the `storedCount` rows that writeColumns() wrote
+    // at the source's position, timestamps moved by timestampShift, and resyncs the accumulator.
+    // Leaves the source after the stored rows.
+    public void readColumns(DoubleBuffer source, int storedCount, int count, double timestampShift) {
+        int first = source.position() + storedCount - count;
+        int newCapacity = capacity;
+        while (newCapacity < count) newCapacity *= 2;
+        if (newCapacity != capacity) allocate(newCapacity);
+        head = 0;
+        size = count;
+
+        if (compact) {
+            baseTimestamp = count == 0 ? 0 : source.get(first) + timestampShift;
+            for (int k = 0; k < count; k++) timestampDeltas[k] = (float)(source.get(first + k) + timestampShift - baseTimestamp);
+            for (int c = 0; c < columns; c++) {
+                int columnFirst = first + (c + 1) * storedCount;
+                for (int k = 0; k < count; k++) compactValues[c][k] = (float)source.get(columnFirst + k);
+            }
+        }
+        else {
+            source.get(first, timestamps, 0, count);
+            for (int k = 0; k < count; k++) timestamps[k] += timestampShift;
+            for (int c = 0; c < columns; c++) source.get(first + (c + 1) * storedCount, values[c], 0, count);
+        }
+        source.position(source.position() + (columns + 1) * storedCount);
+        if (accumulator != null) resync();
+    }
+
+    // Adds a row and evicts rows older than the buffer length. A repeated timestamp replaces the
+    // newest row (the same frame polled again), older timestamps are dropped. Returns if added.
+    public boolean add(double timestamp, double[] row) {
+        if (size > 0) {
+            // compare at stored precision so repeated frames are still recognized in compact storage
+            double stored = compact ? baseTimestamp + (float)(timestamp - baseTimestamp) : timestamp;
+            double last = getLastTimestamp();
+            if (stored == last) removeLast();
+            else if (stored < last) return false;
+        }
+        if (size == capacity) grow();
+
+        if (compact && (size == 0 || timestamp - baseTimestamp > kMaxCompactDeltaSeconds)) rebase(timestamp);
+
+        int i = index(size);
+        if (compact) {
+            timestampDeltas[i] = (float)(timestamp - baseTimestamp);
+            for (int c = 0; c < columns; c++) compactValues[c][i] = (float)row[c];
+        }
+        else {
+            timestamps[i] = timestamp;
+            for (int c = 0; c < columns; c++) values[c][i] = row[c];
+        }
+        size++;
+        if (accumulator != null) accumulator.add(getTimestamp(size - 1), readRow(size - 1));
+
+        evict(timestamp);
+        return true;
+    }
+
+    // Drops the rows more than the buffer length older than `timestamp`, e.g. for a sample that was
+    // not added so a stale window still ages out.
+    public void evict(double timestamp) {
+        while (size > 0 && timestamp - getTimestamp(0) > bufferSeconds) removeFirst();
+        if (accumulator != null && removalsSinceResync >= kResyncRemovals) resync();
+    }
+
+    private void removeFirst() {
+        if (accumulator != null) {
+            accumulator.remove(getTimestamp(0), readRow(0));
+            removalsSinceResync++;
+        }
+        head = index(1);
+        size--;
+    }
+
+    private void removeLast() {
+        if (accumulator != null) {
+            accumulator.remove(getTimestamp(size - 1), readRow(size - 1));
+            removalsSinceResync++;
+        }
+        size--;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        if (accumulator != null) accumulator.clear();
+    }
+
+    private void rebase(double timestamp) {
+        double newBase = size == 0 ? timestamp : getTimestamp(0);
+        for (int k = 0; k < size; k++) {
+            int i = index(k);
+            timestampDeltas[i] = (float)(baseTimestamp + timestampDeltas[i] - newBase);
+        }
+        baseTimestamp = newBase;
+    }
+
+    private void grow() {
+        var oldTimestamps = timestamps;
+        var oldValues = values;
+        var oldDeltas = timestampDeltas;
+        var oldCompactValues = compactValues;
+        int oldCapacity = capacity;
+        int oldHead = head;
+
+        allocate(capacity * 2);
+        for (int k = 0; k < size; k++) {
+            int i = (oldHead + k) % oldCapacity;
+            if (compact) {
+                timestampDeltas[k] = oldDeltas[i];
+                for (int c = 0; c < columns; c++) compactValues[c][k] = oldCompactValues[c][i];
+            }
+            else {
+                timestamps[k] = oldTimestamps[i];
+                for (int c = 0; c < columns; c++) values[c][k] = oldValues[c][i];
+            }
+        }
+        head = 0;
+    }
+}
@@ -0,0 +1,284 @@
+package frc.robot.statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Memory-mapped snapshot of registered statistics' buffers, used to warm-start after a redeploy or
+// brownout. Each statistic owns a fixed-size slot: slots are captured one at a time on the robot
+// thread and copied into the mapping on a background thread.
+//
+// Slots hold the sample windows' primitive columns as they are in memory (see
+// SampleWindow.writeColumns()), so a capture is a bulk copy of the newest rows into the slot's
+// staging buffer and a restore a bulk copy of the mapped columns back into the windows.
+public class SnapshotFile {
+    private static final int kMagic = 0x56535353; // "VSSS"
+    private static final int kVersion = 4;
+    private static final int kHeaderBytes = 16;
+    private static final int kMaxNameBytes = 120;
+    // valid, nameLength, name, wallMillis, fpgaSeconds, poseCount, poseColumns, cornerBufferCount
+    private static final int kSlotHeaderBytes = 4 + 4 + kMaxNameBytes + 8 + 8 + 4 + 4 + 4;
+    // corner key, count, columns
+    private static final int kCornerHeaderBytes = 8 + 4 + 4;
+    // the roboRIO's clock is only set once the driver station connects, a time before 2024 is unset
+    // and cannot tell how long the robot was off
+    private static final long kMinWallMillis = 1704067200000L;
+
+    private final StatisticsRegistry registry;
+    private final int slotCount;
+    private final int slotBytes;
+    private final MappedByteBuffer mapped;
+    private final ExecutorService writer;
+
+    private final Map<String, Integer> slotIndices = new HashMap<>();
+    private final Map<String, PendingSlot> pending = new HashMap<>();
+    private final Map<String, Long> capturedUpdateCounts = new HashMap<>();
+    private final ByteBuffer[] staging;
+    private final AtomicBoolean[] writePending;
+    private int nextCapture = 0;
+
+    // a loaded slot waiting for its statistic to be registered
+    private static class PendingSlot {
+        int slot;
+        double shift;
+        double oldest;
+    }
+
+    public SnapshotFile(Path path, StatisticsRegistry registry, int slotCount, int slotBytes,
+            double windowSeconds, double nowSeconds) throws IOException {
+        this.registry = registry;
+        this.slotCount = slotCount;
+        this.slotBytes = slotBytes;
+
+        long fileBytes = kHeaderBytes + (long)slotCount * slotBytes;
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean compatible = channel.size() == fileBytes;
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+            compatible = compatible
+                && mapped.getInt(0) == kMagic
+                && mapped.getInt(4) == kVersion
+                && mapped.getInt(8) == slotCount
+                && mapped.getInt(12) == slotBytes;
+            if (compatible) {
+                load(windowSeconds, nowSeconds);
+            }
+            else {
+                for (int i = 0; i < slotCount; i++) mapped.putInt(slotOffset(i), 0);
+                mapped.putInt(0, kMagic);
+                mapped.putInt(4, kVersion);
+                mapped.putInt(8, slotCount);
+                mapped.putInt(12, slotBytes);
+                mapped.force();
+            }
+        }
+
+        staging = new ByteBuffer[slotCount];
+        writePending = new AtomicBoolean[slotCount];
+        for (int i = 0; i < slotCount; i++) writePending[i] = new AtomicBoolean(false);
+
+        writer = Executors.newSingleThreadExecutor(r -> {
+            var thread = new Thread(r, "SnapshotFile");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (var stats : registry.getAll()) restore(stats);
+        registry.addRegisterListener(this::restore);
+    }
+
+    private int slotOffset(int slot) {return kHeaderBytes + slot * slotBytes;}
+
+    // Only reads the slot headers, the columns are copied into the windows by restore(). Slots are
+    // only restored when the wall clock gives the time the robot was off.
+    private void load(double windowSeconds, double nowSeconds) {
+        long wallNow = System.currentTimeMillis();
+        if (wallNow < kMinWallMillis) return;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int base = slotOffset(slot);
+            if (mapped.getInt(base) != 1) continue;
+
+            int nameLength = Math.min(mapped.getInt(base + 4), kMaxNameBytes);
+            byte[] nameBytes = new byte[nameLength];
+            mapped.get(base + 8, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            int pos = base + 8 + kMaxNameBytes;
+            long wallMillis = mapped.getLong(pos);
+            double fpgaSeconds = mapped.getDouble(pos + 8);
+            slotIndices.put(name, slot);
+            // an unset or backwards clock at either end
+            if (wallMillis < kMinWallMillis || wallMillis > wallNow) continue;
+
+            // re-express sample timestamps in the current time base, since FPGA time resets on reboot
+            double downtime = Math.max(0, (wallNow - wallMillis) / 1000.0);
+            var loaded = new PendingSlot();
+            loaded.slot = slot;
+            loaded.shift = nowSeconds - fpgaSeconds - downtime;
+            loaded.oldest = nowSeconds - windowSeconds;
+            pending.put(name, loaded);
+        }
+    }
+
+    private void restore(TargetStatistics stats) {
+        var loaded = pending.remove(stats.getName());
+        if (loaded == null) return;
+
+        int base = slotOffset(loaded.slot);
+        int end = base + slotBytes;
+        int pos = base + 8 + kMaxNameBytes + 16;
+        int poseCount = mapped.getInt(pos);
+        int poseColumns = mapped.getInt(pos + 4);
+        int cornerBufferCount = mapped.getInt(pos + 8);
+        pos += 12;
+
+        var poseWindow = stats.getPoseStats().getSampleWindow();
+        if (!restoreWindow(poseWindow, pos, end, poseCount, poseColumns, loaded)) return;
+        pos += columnBytes(poseWindow, poseCount);
+        var cornerStats = stats.getCornerStats();
+        for (int c = 0; c < cornerBufferCount && pos + kCornerHeaderBytes <= end; c++) {
+            long key = mapped.getLong(pos);
+            int count = mapped.getInt(pos + 8);
+            int columns = mapped.getInt(pos + 12);
+            pos += kCornerHeaderBytes;
+            var cornerWindow = cornerStats.getRestoreWindow(key);
+            if (!restoreWindow(cornerWindow, pos, end, count, columns, loaded)) break;
+            pos += columnBytes(cornerWindow, count);
+        }
+        stats.finishRestore();
+        capturedUpdateCounts.put(stats.getName(), stats.getUpdateCount());
+    }
+
+    // Copies the rows within the window straight from the mapped columns, false if they don't fit the
+    // slot or were saved with a different layout.
+    private boolean restoreWindow(SampleWindow window, int pos, int end, int count, int columns, PendingSlot loaded) {
+        if (columns != window.columns() || count < 0 || pos + columnBytes(window, count) > end) return false;
+
+        // rows are oldest first, skip the ones that left the window while the robot was off
+        int low = 0, high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mapped.getDouble(pos + mid * 8) + loaded.shift < loaded.oldest) low = mid + 1;
+            else high = mid;
+        }
+        var columns = mapped.slice(pos, (int)columnBytes(window, count)).asDoubleBuffer();
+        window.readColumns(columns, count, count - low, loaded.shift);
+        return true;
+    }
+
+    // timestamps and every column
+    private static long columnBytes(SampleWindow window, int count) {
+        return (long)count * (window.columns() + 1) * 8;
+    }
+
+    private int slotFor(String name) {
+        var slot = slotIndices.get(name);
+        if (slot != null) return slot;
+
+        for (int i = 0; i < slotCount; i++) {
+            if (!slotIndices.containsValue(i)) {
+                slotIndices.put(name, i);
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Captures at most one changed statistic per call so the per-loop cost stays small.
+    public void capture(double nowSeconds) {
+        List<TargetStatistics> all = registry.getAll();
+        if (all.isEmpty()) return;
+
+        for (int attempt = 0; attempt < all.size(); attempt++) {
+            var stats = all.get(nextCapture++ % all.size());
+            Long captured = capturedUpdateCounts.get(stats.getName());
+            if (captured != null && captured == stats.getUpdateCount()) continue;
+
+            int slot = slotFor(stats.getName());
+            if (slot < 0 || writePending[slot].get()) continue;
+
+            capturedUpdateCounts.put(stats.getName(), stats.getUpdateCount());
+            serialize(slot, stats, nowSeconds);
+            writePending[slot].set(true);
+            writer.execute(() -> write(slot));
+            return;
+        }
+    }
+
+    // Bulk copies of the windows' newest rows into the slot's staging buffer, the only copy made on
+    // the updating thread.
+    private void serialize(int slot, TargetStatistics stats, double nowSeconds) {
+        if (staging[slot] == null) staging[slot] = ByteBuffer.allocate(slotBytes);
+        var buf = staging[slot];
+        buf.clear();
+
+        var poseWindow = stats.getPoseStats().getSampleWindow();
+        var cornerStats = stats.getCornerStats();
+        // corners beyond what the slot has room for are dropped
+        int cornerBufferCount = Math.min(cornerStats.getSlotCount(), (slotBytes - kSlotHeaderBytes) / kCornerHeaderBytes);
+
+        // keep the newest samples of every series if the slot cannot hold everything
+        long needed = columnBytes(poseWindow, poseWindow.size());
+        for (int c = 0; c < cornerBufferCount; c++) {
+            var cornerWindow = cornerStats.getSlotWindow(c);
+            needed += columnBytes(cornerWindow, cornerWindow.size());
+        }
+        long available = slotBytes - kSlotHeaderBytes - (long)kCornerHeaderBytes * cornerBufferCount;
+        double keepFraction = needed <= available ? 1 : Math.max(0, Math.min(1, (double)available / needed));
+
+        byte[] nameBytes = stats.getName().getBytes(StandardCharsets.UTF_8);
+        int nameLength = Math.min(nameBytes.length, kMaxNameBytes);
+        buf.putInt(1);
+        buf.putInt(nameLength);
+        buf.put(nameBytes, 0, nameLength);
+        buf.position(8 + kMaxNameBytes);
+        buf.putLong(System.currentTimeMillis());
+        buf.putDouble(nowSeconds);
+
+        int poseRows = keptRows(poseWindow.size(), keepFraction);
+        buf.putInt(poseRows);
+        buf.putInt(poseWindow.columns());
+        buf.putInt(cornerBufferCount);
+        putColumns(buf, poseWindow, poseRows);
+        for (int c = 0; c < cornerBufferCount; c++) {
+            var cornerWindow = cornerStats.getSlotWindow(c);
+            int cornerRows = keptRows(cornerWindow.size(), keepFraction);
+            buf.putLong(cornerStats.getSlotKey(c));
+            buf.putInt(cornerRows);
+            buf.putInt(cornerWindow.columns());
+            putColumns(buf, cornerWindow, cornerRows);
+        }
+        buf.flip();
+    }
+
+    private static int keptRows(int size, double keepFraction) {
+        return (int)Math.floor(size * keepFraction);
+    }
+
+    private static void putColumns(ByteBuffer buf, SampleWindow window, int count) {
+        DoubleBuffer columns = buf.asDoubleBuffer();
+        window.writeColumns(columns, count);
+        buf.position(buf.position() + columns.position() * 8);
+    }
+
+    private void write(int slot) {
+        var buf = staging[slot];
+        int base = slotOffset(slot);
+        // invalidate first so a torn write is never loaded
+        mapped.putInt(base, 0);
+        mapped.put(base + 4, buf.array(), 4, buf.limit() - 4);
+        mapped.force();
+        mapped.putInt(base, 1);
+        mapped.force();
+        writePending[slot].set(false);
+    }
+}
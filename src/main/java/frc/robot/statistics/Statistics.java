@@ -18,20 +18,44 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
 
-public abstract class Statistics<Input> {
+public abstract class Statistics<Input> implements AutoCloseable {
+    protected final String tableName;
     protected double bufferSeconds;
 
     public Statistics(String tableName, double bufferSeconds) {
+        this.tableName = tableName;
         setBufferSeconds(bufferSeconds);
     }
 
+    public String getName() {return tableName;}
+    public double getBufferSeconds() {return bufferSeconds;}
+
+    // Statistics without a table name publish nothing, e.g. the many instances of an offline replay
+    public boolean isPublishing() {return tableName != null && !tableName.isEmpty();}
+
+    // null when not publishing
+    protected NetworkTable getTable() {
+        return isPublishing() ? NetworkTableInstance.getDefault().getTable(tableName) : null;
+    }
+
+    protected static DoublePublisher publishDouble(NetworkTable table, String name) {
+        return table == null ? null : table.getDoubleTopic(name).publish();
+    }
+
     public void setBufferSeconds(double bufferSeconds) {
         this.bufferSeconds = bufferSeconds;
     }
 
     public abstract void update(Input input, double timestampSeconds);
 
+    // Releases NT publishers, the statistics must not be updated afterwards
+    @Override
+    public void close() {}
+
 
     //////////////////// Static statistics calculations
     //----- Double
@@ -47,10 +71,7 @@ public abstract class Statistics<Input> {
     public static double findAverage(double... values) {
         if (values == null || values.length == 0) return 0.0;
 
-        double average = 0;
-        for (double v : values) average += v;
-        average /= values.length;
-        return average;
+        return findColumnAverage(values, values.length);
     }
 
     public static double findSqErrorSum(double avg, Collection<Double> values) {
@@ -67,12 +88,7 @@ public abstract class Statistics<Input> {
     public static double findSqErrorSum(double avg, double... values) {
         if (values == null || values.length == 0) return 0.0;
 
-        double sum = 0;
-        for (double v : values) {
-            double diff = v - avg;
-            sum += diff*diff;
-        }
-        return sum;
+        return findColumnSqErrorSum(avg, values, values.length);
     }
     
     public static double findStdDev(double avg, Collection<Double> values) {
@@ -93,6 +109,32 @@ public abstract class Statistics<Input> {
         return sum;
     }
 
+    //----- Primitive columns (first `length` elements)
+    public static double findColumnAverage(double[] column, int length) {
+        if (length == 0) return 0.0;
+        return StatisticsKernels.get().sum(column, 0, length) / length;
+    }
+
+    public static double findColumnSqErrorSum(double avg, double[] column, int length) {
+        if (length == 0) return 0.0;
+        return StatisticsKernels.get().sqErrorSum(avg, column, 0, length);
+    }
+
+    public static double findColumnAngleSqErrorSum(double avg, double[] column, int length) {
+        if (length == 0) return 0.0;
+        return StatisticsKernels.get().angleSqErrorSum(avg, column, null, 0, length);
+    }
+
+    public static double findColumnAngleSqErrorSum(double avg, double[] column, double[] weights, int length) {
+        if (length == 0) return 0.0;
+        return StatisticsKernels.get().angleSqErrorSum(avg, column, weights, 0, length);
+    }
+
+    static double[] ensureCapacity(double[] column, int length) {
+        if (column.length >= length) return column;
+        return new double[Math.max(length, column.length * 2)];
+    }
+
     //----- Translation
     public static Translation3d findAverage(Translation3d... values) {
         double x = 0;
@@ -141,7 +183,11 @@ public abstract class Statistics<Input> {
 
     //----- Rotation
     public static Rotation3d findAverage(Rotation3d... values) {
-        // averaging quaternions https://math.stackexchange.com/a/3435296
+        return findAverage(findQuaternionAccumulator(values));
+    }
+
+    // sum of quaternion outer products, the averaged rotation is its principal eigenvector
+    public static DMatrix4x4 findQuaternionAccumulator(Rotation3d... values) {
         DMatrix4x4 rotAccum = new DMatrix4x4();
         DMatrix4 qvec = new DMatrix4();
 
@@ -150,7 +196,11 @@ public abstract class Statistics<Input> {
             qvec.setTo(q.getX(), q.getY(), q.getZ(), q.getW());
             CommonOps_DDF4.multAddOuter(1, rotAccum, 1, qvec, qvec, rotAccum);
         }
+        return rotAccum;
+    }
 
+    public static Rotation3d findAverage(DMatrix4x4 rotAccum) {
+        // averaging quaternions https://math.stackexchange.com/a/3435296
         var rotEigDecomp = new SimpleEVD<SimpleMatrix>(new DMatrixRMaj(rotAccum));
         var rotEigVals = rotEigDecomp.getEigenvalues();
         int rotMaxEigValIndex = 0;
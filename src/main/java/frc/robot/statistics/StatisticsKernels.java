@@ -0,0 +1,74 @@
+package frc.robot.statistics;
+
+import edu.wpi.first.math.MathUtil;
+
+// Bulk reductions over primitive columns, e.g. the rotation spread PoseStatistics takes over its
+// window on every update. The Vector API implementation (the "vector" source set)
+// is used when it is on the classpath and the jdk.incubator.vector module is present (desktop
+// tasks started with --add-modules), otherwise the scalar loops are used, e.g. on the roboRIO JVM.
+abstract class StatisticsKernels {
+    private static final StatisticsKernels instance = create();
+
+    static StatisticsKernels get() {return instance;}
+
+    static StatisticsKernels scalar() {return new ScalarKernels();}
+
+    private static StatisticsKernels create() {
+        if (Boolean.getBoolean("visionstatistics.scalarKernels")) return scalar();
+        try {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                // loaded reflectively so the Vector API classes are never resolved when missing
+                return (StatisticsKernels)Class.forName("frc.robot.statistics.VectorKernels").getDeclaredConstructor().newInstance();
+            }
+        }
+        catch (Throwable e) {
+            // fall through to scalar
+        }
+        return scalar();
+    }
+
+    abstract String getName();
+
+    abstract double sum(double[] values, int offset, int length);
+
+    abstract double sqErrorSum(double avg, double[] values, int offset, int length);
+
+    // sum of the squared wrapped angle differences, optionally weighted (weights null for unweighted)
+    abstract double angleSqErrorSum(double avg, double[] values, double[] weights, int offset, int length);
+
+    static double angleSqError(double value, double avg) {
+        double diff = MathUtil.angleModulus(value - avg);
+        return diff*diff;
+    }
+
+    static class ScalarKernels extends StatisticsKernels {
+        @Override
+        String getName() {return "scalar";}
+
+        @Override
+        double sum(double[] values, int offset, int length) {
+            double sum = 0;
+            for (int i = offset; i < offset + length; i++) sum += values[i];
+            return sum;
+        }
+
+        @Override
+        double sqErrorSum(double avg, double[] values, int offset, int length) {
+            double sum = 0;
+            for (int i = offset; i < offset + length; i++) {
+                double diff = values[i] - avg;
+                sum += diff*diff;
+            }
+            return sum;
+        }
+
+        @Override
+        double angleSqErrorSum(double avg, double[] values, double[] weights, int offset, int length) {
+            double sum = 0;
+            for (int i = offset; i < offset + length; i++) {
+                sum += weights == null ? angleSqError(values[i], avg) : weights[i] * angleSqError(values[i], avg);
+            }
+            return sum;
+        }
+    }
+}
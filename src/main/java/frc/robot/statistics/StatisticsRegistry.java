@@ -0,0 +1,30 @@
+package frc.robot.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class StatisticsRegistry {
+    private final Map<String, TargetStatistics> statsByName = new ConcurrentHashMap<>();
+    private final List<Consumer<TargetStatistics>> registerListeners = new CopyOnWriteArrayList<>();
+
+    public void register(TargetStatistics stats) {
+        statsByName.put(stats.getName(), stats);
+        for (var listener : registerListeners) listener.accept(stats);
+    }
+
+    public void unregister(TargetStatistics stats) {
+        statsByName.remove(stats.getName(), stats);
+    }
+
+    public void addRegisterListener(Consumer<TargetStatistics> listener) {
+        registerListeners.add(listener);
+    }
+
+    public TargetStatistics get(String name) {return statsByName.get(name);}
+
+    public List<TargetStatistics> getAll() {return new ArrayList<>(statsByName.values());}
+}
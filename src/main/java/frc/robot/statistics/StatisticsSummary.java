@@ -0,0 +1,145 @@
+package frc.robot.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.ejml.data.DMatrix4x4;
+import org.ejml.dense.fixed.CommonOps_DDF4;
+import org.photonvision.targeting.TargetCorner;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+// Mergeable summary of pose and corner statistics, so shards (cameras, tags, replay windows)
+// can be aggregated in O(1) per merge without re-scanning their samples.
+public class StatisticsSummary {
+    public static final StatisticsSummary kEmpty =
+        new StatisticsSummary(Moments.empty(3), Moments.empty(3), new DMatrix4x4(), new long[]{}, List.of());
+
+    private final Moments translation;
+    // mean holds the averaged rotation's angles, M2 the wrapped squared errors about it
+    private final Moments rotation;
+    private final DMatrix4x4 quaternionAccum;
+    // (x, y) per corner, in ascending order of their CornerStatistics.cornerKey (fiducial ID, corner index)
+    private final long[] cornerKeys;
+    private final List<Moments> corners;
+
+    // cornerKeys must be ascending, one per corner
+    public StatisticsSummary(Moments translation, Moments rotation, DMatrix4x4 quaternionAccum, long[] cornerKeys, List<Moments> corners) {
+        if (cornerKeys.length != corners.size()) throw new IllegalArgumentException("One key per corner required");
+        for (int i = 1; i < cornerKeys.length; i++) {
+            if (cornerKeys[i] <= cornerKeys[i - 1]) throw new IllegalArgumentException("Corner keys must be ascending");
+        }
+        this.translation = translation;
+        this.rotation = rotation;
+        this.quaternionAccum = new DMatrix4x4(quaternionAccum);
+        this.cornerKeys = cornerKeys.clone();
+        this.corners = List.copyOf(corners);
+    }
+
+    public StatisticsSummary withCorners(long[] cornerKeys, List<Moments> corners) {
+        return new StatisticsSummary(translation, rotation, quaternionAccum, cornerKeys, corners);
+    }
+
+    public StatisticsSummary merge(StatisticsSummary other) {
+        var mergedAccum = new DMatrix4x4();
+        CommonOps_DDF4.add(quaternionAccum, other.quaternionAccum, mergedAccum);
+
+        Moments mergedRotation;
+        if (other.rotation.getCount() == 0) mergedRotation = rotation;
+        else if (rotation.getCount() == 0) mergedRotation = other.rotation;
+        else {
+            // parallel axis form of Chan's update, with wrapped angle differences about the new mean
+            var avg = Statistics.findAverage(mergedAccum);
+            double[] angles = {avg.getX(), avg.getY(), avg.getZ()};
+            double[] m2 = new double[3];
+            for (int i = 0; i < 3; i++) {
+                double deltaA = MathUtil.angleModulus(rotation.getMean(i) - angles[i]);
+                double deltaB = MathUtil.angleModulus(other.rotation.getMean(i) - angles[i]);
+                m2[i] = rotation.getM2(i) + rotation.getCount() * deltaA*deltaA
+                    + other.rotation.getM2(i) + other.rotation.getCount() * deltaB*deltaB;
+            }
+            mergedRotation = new Moments(rotation.getCount() + other.rotation.getCount(), angles, m2);
+        }
+
+        // the same corner of the same tag is merged, both key lists are ascending
+        var mergedKeys = new long[cornerKeys.length + other.cornerKeys.length];
+        var mergedCorners = new ArrayList<Moments>(mergedKeys.length);
+        int a = 0, b = 0, k = 0;
+        while (a < cornerKeys.length || b < other.cornerKeys.length) {
+            if (b == other.cornerKeys.length || (a < cornerKeys.length && cornerKeys[a] < other.cornerKeys[b])) {
+                mergedKeys[k++] = cornerKeys[a];
+                mergedCorners.add(corners.get(a++));
+            }
+            else if (a == cornerKeys.length || other.cornerKeys[b] < cornerKeys[a]) {
+                mergedKeys[k++] = other.cornerKeys[b];
+                mergedCorners.add(other.corners.get(b++));
+            }
+            else {
+                mergedKeys[k++] = cornerKeys[a];
+                mergedCorners.add(corners.get(a++).merge(other.corners.get(b++)));
+            }
+        }
+
+        return new StatisticsSummary(translation.merge(other.translation), mergedRotation, mergedAccum, Arrays.copyOf(mergedKeys, k), mergedCorners);
+    }
+
+    public static StatisticsSummary merge(Collection<StatisticsSummary> summaries) {
+        var result = kEmpty;
+        for (var summary : summaries) result = result.merge(summary);
+        return result;
+    }
+
+    public long getCount() {return translation.getCount();}
+    public Moments getTranslationMoments() {return translation;}
+    public Moments getRotationMoments() {return rotation;}
+    // keys of the corners in list order, see CornerStatistics.cornerKey()
+    public long[] getCornerKeys() {return cornerKeys.clone();}
+    public List<Moments> getCornerMoments() {return corners;}
+
+    public DMatrix4x4 getQuaternionAccumulator() {return new DMatrix4x4(quaternionAccum);}
+
+    public Translation3d getTranslationAvg() {
+        return new Translation3d(translation.getMean(0), translation.getMean(1), translation.getMean(2));
+    }
+
+    public Translation3d getTranslationStdDev() {
+        return new Translation3d(translation.getStdDev(0), translation.getStdDev(1), translation.getStdDev(2));
+    }
+
+    public Rotation3d getRotationAvg() {
+        return new Rotation3d(rotation.getMean(0), rotation.getMean(1), rotation.getMean(2));
+    }
+
+    public double[] getRotationStdDev() {
+        return new double[]{rotation.getStdDev(0), rotation.getStdDev(1), rotation.getStdDev(2)};
+    }
+
+    public List<TargetCorner> getCornerAvgs() {
+        var avgs = new ArrayList<TargetCorner>(corners.size());
+        for (var c : corners) avgs.add(new TargetCorner(c.getMean(0), c.getMean(1)));
+        return avgs;
+    }
+
+    public List<TargetCorner> getCornerStdDevs() {
+        var stdDevs = new ArrayList<TargetCorner>(corners.size());
+        for (var c : corners) stdDevs.add(new TargetCorner(c.getStdDev(0), c.getStdDev(1)));
+        return stdDevs;
+    }
+
+    public TargetCorner getTotalCornerStdDev() {
+        double sqErrX = 0;
+        double sqErrY = 0;
+        long count = 0;
+        for (var c : corners) {
+            sqErrX += c.getM2(0);
+            sqErrY += c.getM2(1);
+            count += c.getCount();
+        }
+        if (count == 0) return new TargetCorner(0, 0);
+        return new TargetCorner(Math.sqrt(sqErrX / count), Math.sqrt(sqErrY / count));
+    }
+}
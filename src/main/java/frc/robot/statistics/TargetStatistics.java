@@ -10,10 +10,53 @@ import org.photonvision.targeting.TargetCorner;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
 
 public class TargetStatistics extends Statistics<PhotonTrackedTarget> {
     private final PoseStatistics poseStats;
     private final CornerStatistics cornerStats;
+    private long updateCount = 0;
+    // published with a single volatile write after both pose and corner stats are updated
+    private volatile Result result = Result.kEmpty;
+
+    // optional early stop once every pose std dev is known to within the tolerance
+    static final int kMinConvergenceSamples = 30;
+    static final double kConvergenceZ = 1.959963984540054; // 95%
+    private PowerSumAccumulator powerSums;
+    private double convergenceTolerance = 0;
+    private volatile boolean converged = false;
+    // set by resetConvergence() on any thread and taken by the next update, which restarts the count
+    // of updates the confidence interval must hold for before converging again
+    private volatile boolean convergenceReset = false;
+    private long convergenceStartCount = 0;
+    private BooleanPublisher convergedPublisher;
+    private DoublePublisher confidenceWidthPublisher;
+
+    public static final class Result {
+        public static final Result kEmpty = new Result(PoseStatistics.Result.kEmpty, CornerStatistics.Result.kEmpty, 0, 0);
+
+        private final PoseStatistics.Result pose;
+        private final CornerStatistics.Result corners;
+        private final long updateCount;
+        private final double timestampSeconds;
+
+        Result(PoseStatistics.Result pose, CornerStatistics.Result corners, long updateCount, double timestampSeconds) {
+            this.pose = pose;
+            this.corners = corners;
+            this.updateCount = updateCount;
+            this.timestampSeconds = timestampSeconds;
+        }
+
+        public PoseStatistics.Result getPose() {return pose;}
+        public CornerStatistics.Result getCorners() {return corners;}
+        public long getUpdateCount() {return updateCount;}
+        public double getTimestampSeconds() {return timestampSeconds;}
+        public StatisticsSummary getSummary() {
+            var cornerSummary = corners.getSummary();
+            return pose.getSummary().withCorners(cornerSummary.getCornerKeys(), cornerSummary.getCornerMoments());
+        }
+    }
 
     public TargetStatistics(String tableName, double bufferSeconds) {
         super(tableName, bufferSeconds);
@@ -28,27 +71,181 @@ public class TargetStatistics extends Statistics<PhotonTrackedTarget> {
         if (cornerStats != null) cornerStats.setBufferSeconds(bufferSeconds);
     }
 
+    public void setCircularRotationStats(boolean enabled) {
+        poseStats.setCircularRotationStats(enabled);
+    }
+
+    public void setTimeWeightedStats(boolean enabled) {
+        poseStats.setTimeWeightedStats(enabled);
+    }
+
+    public void setOutlierRejection(boolean enabled) {
+        poseStats.setOutlierRejection(enabled);
+    }
+
+    public void setOutlierThreshold(double threshold) {
+        poseStats.setOutlierThreshold(threshold);
+    }
+
+    public long getRejectedCount() {return poseStats.getRejectedCount();}
+
+    public void setCompactStorage(boolean compact) {
+        poseStats.setCompactStorage(compact);
+        cornerStats.setCompactStorage(compact);
+    }
+
+    // Stops updating the pose and corner statistics (quaternion EVD, corner buffers) once the 95%
+    // confidence interval of every pose std dev is narrower than relativeWidth times the std dev,
+    // e.g. 0.1 for +-5%. The results stay frozen until resetConvergence(), then at least
+    // kMinConvergenceSamples new updates are needed to converge again. 0 disables.
+    public void setConvergenceTolerance(double relativeWidth) {
+        convergenceTolerance = relativeWidth;
+        if (relativeWidth > 0 && powerSums == null) {
+            powerSums = poseStats.attachAccumulator(new PowerSumAccumulator(
+                new int[]{PoseStatistics.kX, PoseStatistics.kY, PoseStatistics.kZ, PoseStatistics.kRX, PoseStatistics.kRY, PoseStatistics.kRZ},
+                new int[]{PoseStatistics.kRX, PoseStatistics.kRY, PoseStatistics.kRZ}));
+            if (isPublishing()) {
+                var table = getTable();
+                convergedPublisher = table.getBooleanTopic("Converged").publish();
+                confidenceWidthPublisher = table.getDoubleTopic("StdDevConfidenceWidth").publish();
+                convergedPublisher.set(false);
+            }
+        }
+        if (relativeWidth <= 0) resetConvergence();
+    }
+
+    public boolean isConverged() {return converged;}
+
+    // Resumes sampling, e.g. after moving the camera. Safe to call from any thread.
+    public void resetConvergence() {
+        convergenceReset = true;
+        converged = false;
+        if (convergedPublisher != null) convergedPublisher.set(false);
+    }
+
+    // once converged only the result's timestamp advances, so the statistic still counts as seen
+    private boolean skipConverged(double timestampSeconds) {
+        if (!converged || convergenceReset) return false;
+        updateCount++;
+        result = new Result(result.getPose(), result.getCorners(), updateCount, timestampSeconds);
+        return true;
+    }
+
+    private void updateConvergence() {
+        if (convergenceReset) {
+            // again here, in case an update converged while the reset came in
+            convergenceReset = false;
+            converged = false;
+            // counting this update, the first since the reset
+            convergenceStartCount = updateCount - 1;
+        }
+        if (powerSums == null || convergenceTolerance <= 0) return;
+
+        double width = Double.POSITIVE_INFINITY;
+        // the window still holds the samples it converged on, so fresh ones are needed as well
+        if (powerSums.getCount() >= kMinConvergenceSamples && updateCount - convergenceStartCount >= kMinConvergenceSamples) {
+            width = 0;
+            for (int i = 0; i < 6; i++) width = Math.max(width, powerSums.getStdDevRelativeConfidenceWidth(i, kConvergenceZ));
+        }
+        if (confidenceWidthPublisher != null) confidenceWidthPublisher.set(width);
+        if (width <= convergenceTolerance) {
+            converged = true;
+            if (convergedPublisher != null) convergedPublisher.set(true);
+        }
+    }
+
     @Override
     public void update(PhotonTrackedTarget target, double timestampSeconds) {
-        update(new Pose3d().plus(target.getBestCameraToTarget()), target.getDetectedCorners(), timestampSeconds);
+        if (skipConverged(timestampSeconds)) return;
+        poseStats.update(new Pose3d().plus(target.getBestCameraToTarget()), timestampSeconds);
+        cornerStats.update(target.getFiducialId(), target.getDetectedCorners(), timestampSeconds);
+        publishResult(timestampSeconds);
+    }
+
+    // corners are tracked per (fiducial ID, corner index) of each target
+    public void updateTargets(Pose3d pose, List<PhotonTrackedTarget> targets, double timestampSeconds) {
+        if (skipConverged(timestampSeconds)) return;
+        poseStats.update(pose, timestampSeconds);
+        cornerStats.updateTargets(targets, timestampSeconds);
+        publishResult(timestampSeconds);
     }
 
     public void update(Pose3d pose, double[] corners, double timestampSeconds) {
+        if (skipConverged(timestampSeconds)) return;
         poseStats.update(pose, timestampSeconds);
         cornerStats.update(corners, timestampSeconds);
+        publishResult(timestampSeconds);
     }
 
     public void update(Pose3d pose, List<TargetCorner> corners, double timestampSeconds) {
+        if (skipConverged(timestampSeconds)) return;
+        poseStats.update(pose, timestampSeconds);
+        cornerStats.update(corners, timestampSeconds);
+        publishResult(timestampSeconds);
+    }
+
+    // a single target from primitive columns, see CornerStatistics.update(int, double[], int, int, double)
+    public void update(int fiducialId, double x, double y, double z, double qw, double qx, double qy, double qz,
+            double[] corners, int cornerOffset, int cornerCount, double timestampSeconds) {
+        if (skipConverged(timestampSeconds)) return;
+        poseStats.update(x, y, z, qw, qx, qy, qz, timestampSeconds);
+        cornerStats.update(fiducialId, corners, cornerOffset, cornerCount, timestampSeconds);
+        publishResult(timestampSeconds);
+    }
+
+    public void updateTargets(Pose3d pose, int targetCount, int[] fiducialIds, double[] corners, int[] cornerOffsets, int[] cornerCounts, double timestampSeconds) {
+        if (skipConverged(timestampSeconds)) return;
         poseStats.update(pose, timestampSeconds);
+        cornerStats.updateTargets(targetCount, fiducialIds, corners, cornerOffsets, cornerCounts, timestampSeconds);
+        publishResult(timestampSeconds);
+    }
+
+    // primitive pose for replays, corners as in tcornxy
+    public void update(double x, double y, double z, double qw, double qx, double qy, double qz, double[] corners, double timestampSeconds) {
+        if (skipConverged(timestampSeconds)) return;
+        poseStats.update(x, y, z, qw, qx, qy, qz, timestampSeconds);
         cornerStats.update(corners, timestampSeconds);
+        publishResult(timestampSeconds);
+    }
+
+    private void publishResult(double timestampSeconds) {
+        updateCount++;
+        result = new Result(poseStats.getResult(), cornerStats.getResult(), updateCount, timestampSeconds);
+        updateConvergence();
+    }
+
+    public long getUpdateCount() {return updateCount;}
+
+    @Override
+    public void close() {
+        poseStats.close();
+        cornerStats.close();
+        if (convergedPublisher != null) convergedPublisher.close();
+        if (confidenceWidthPublisher != null) confidenceWidthPublisher.close();
+    }
+
+    double[] exportPoseSamples() {return poseStats.exportSamples();}
+    double[][] exportCornerSamples() {return cornerStats.exportSamples();}
+
+    PoseStatistics getPoseStats() {return poseStats;}
+    CornerStatistics getCornerStats() {return cornerStats;}
+
+    // after SnapshotFile restored the pose and corner windows
+    void finishRestore() {
+        poseStats.finishRestore();
+        cornerStats.finishRestore();
+        result = new Result(poseStats.getResult(), cornerStats.getResult(), updateCount, result.getTimestampSeconds());
     }
 
-    public Translation3d getTranslationAvg() {return poseStats.getTranslationAvg();}
-    public Translation3d getTranslationStdDev() {return poseStats.getTranslationStdDev();}
-    public Rotation3d getRotationAvg() {return poseStats.getRotationAvg();}
-    public double[] getRotationStdDev() {return poseStats.getRotationStdDev();}
-    public List<TargetCorner> getCornerAvgs() {return cornerStats.getCornerAvgs();}
-    public List<TargetCorner> getCornerStdDevs() {return cornerStats.getCornerStdDevs();}
-    public TargetCorner getTotalCornerStdDev() {return cornerStats.getTotalCornerStdDev();}
-    public TargetCorner getTotalCornerSqError() {return cornerStats.getTotalCornerSqError();}
+    // consistent pose and corner results for reading from other threads
+    public Result getResult() {return result;}
+    public Translation3d getTranslationAvg() {return result.getPose().getTranslationAvg();}
+    public Translation3d getTranslationStdDev() {return result.getPose().getTranslationStdDev();}
+    public Rotation3d getRotationAvg() {return result.getPose().getRotationAvg();}
+    public double[] getRotationStdDev() {return result.getPose().getRotationStdDev();}
+    public List<TargetCorner> getCornerAvgs() {return result.getCorners().getCornerAvgs();}
+    public List<TargetCorner> getCornerStdDevs() {return result.getCorners().getCornerStdDevs();}
+    public TargetCorner getTotalCornerStdDev() {return result.getCorners().getTotalCornerStdDev();}
+    public TargetCorner getTotalCornerSqError() {return result.getCorners().getTotalCornerSqError();}
+    public StatisticsSummary getSummary() {return result.getSummary();}
 }
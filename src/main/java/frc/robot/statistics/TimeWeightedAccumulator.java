@@ -0,0 +1,125 @@
+package frc.robot.statistics;
+
+// Weights each sample of a time-ordered stream by its interval to the next sample, so bursts of
+// frames do not outweigh steady periods. Intervals are capped, a sample before a gap (target out of
+// view) counts as at most maxIntervalSeconds. The newest sample waits without weight until the
+// next one arrives. When disabled, every sample is passed on at once with weight 1.
+//
+// Removals must follow SampleWindow's order: the oldest sample, or the newest one when it is
+// replaced by a sample with the same timestamp. Accumulators that take no weights belong next to
+// this one rather than inside it, so they are not held back by the newest sample.
+public class TimeWeightedAccumulator<R> implements Accumulator<R> {
+    private final WeightedAccumulator<R> inner;
+    private final double maxIntervalSeconds;
+    private boolean enabled = true;
+
+    // timestamps of the samples in the stream, oldest first
+    private double[] timestamps = new double[16];
+    private int head = 0;
+    private int size = 0;
+
+    // the newest sample, not yet passed to the inner accumulator
+    private double[] pendingRow;
+    private boolean hasPending = false;
+    // the newest sample passed to the inner accumulator, and the end of the interval it was weighted
+    // with once its successor was removed for a replacement
+    private double[] weightedRow;
+    private double newestWeightedUntil = Double.NaN;
+
+    public TimeWeightedAccumulator(WeightedAccumulator<R> inner, double maxIntervalSeconds) {
+        this.inner = inner;
+        this.maxIntervalSeconds = maxIntervalSeconds;
+    }
+
+    public WeightedAccumulator<R> getInner() {return inner;}
+    public boolean isEnabled() {return enabled;}
+
+    // Takes effect from the next clear(), e.g. SampleWindow.setAccumulator() replaying its rows.
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    private double weight(double interval) {
+        return Math.min(interval, maxIntervalSeconds);
+    }
+
+    private double timestampAt(int offset) {
+        return timestamps[(head + offset) % timestamps.length];
+    }
+
+    @Override
+    public void add(double timestamp, double[] row) {
+        if (!enabled) {
+            inner.add(timestamp, row, 1);
+            return;
+        }
+
+        if (hasPending) {
+            inner.add(timestampAt(size - 1), pendingRow, weight(timestamp - timestampAt(size - 1)));
+            var added = pendingRow;
+            pendingRow = weightedRow;
+            weightedRow = added;
+        }
+        else if (!Double.isNaN(newestWeightedUntil) && timestamp != newestWeightedUntil) {
+            // the replacement's timestamp differs (e.g. rebased compact timestamps), re-weight its predecessor
+            double newest = timestampAt(size - 1);
+            inner.remove(newest, weightedRow, weight(newestWeightedUntil - newest));
+            inner.add(newest, weightedRow, weight(timestamp - newest));
+        }
+        newestWeightedUntil = Double.NaN;
+
+        if (size == timestamps.length) grow();
+        timestamps[(head + size) % timestamps.length] = timestamp;
+        size++;
+
+        if (pendingRow == null || pendingRow.length != row.length) pendingRow = new double[row.length];
+        System.arraycopy(row, 0, pendingRow, 0, row.length);
+        hasPending = true;
+    }
+
+    @Override
+    public void remove(double timestamp, double[] row) {
+        if (!enabled) {
+            inner.remove(timestamp, row, 1);
+            return;
+        }
+        if (size == 0) return;
+
+        if (hasPending && timestamp == timestampAt(size - 1)) {
+            // the newest sample, which was never weighted
+            hasPending = false;
+            size--;
+            newestWeightedUntil = size == 0 ? Double.NaN : timestamp;
+            return;
+        }
+
+        // the weight from the timestamps it was added with, rebased compact timestamps may differ slightly
+        double oldest = timestampAt(0);
+        double next = size > 1 ? timestampAt(1) : newestWeightedUntil;
+        inner.remove(oldest, row, weight(next - oldest));
+        head = (head + 1) % timestamps.length;
+        size--;
+        if (size == 0) newestWeightedUntil = Double.NaN;
+    }
+
+    @Override
+    public void clear() {
+        inner.clear();
+        head = 0;
+        size = 0;
+        hasPending = false;
+        newestWeightedUntil = Double.NaN;
+    }
+
+    @Override
+    public R result() {
+        return inner.result();
+    }
+
+    private void grow() {
+        var grown = new double[timestamps.length * 2];
+        for (int k = 0; k < size; k++) grown[k] = timestampAt(k);
+        timestamps = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,20 @@
+package frc.robot.statistics;
+
+// An accumulator whose samples can carry a weight, e.g. the time each sample stands for.
+// Unweighted add/remove count a sample with weight 1.
+public interface WeightedAccumulator<R> extends Accumulator<R> {
+    void add(double timestamp, double[] row, double weight);
+
+    // removes a row previously added with the same weight
+    void remove(double timestamp, double[] row, double weight);
+
+    @Override
+    default void add(double timestamp, double[] row) {
+        add(timestamp, row, 1);
+    }
+
+    @Override
+    default void remove(double timestamp, double[] row) {
+        remove(timestamp, row, 1);
+    }
+}
@@ -0,0 +1,132 @@
+package frc.robot.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.targeting.MultiTargetPNPResults;
+import org.photonvision.targeting.PNPResults;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+class PhotonPacketDecoderTest {
+    private final Random random = new Random(50);
+
+    private Transform3d randomTransform() {
+        return new Transform3d(
+            new Translation3d(random.nextGaussian() * 3, random.nextGaussian() * 3, random.nextGaussian()),
+            new Rotation3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian()));
+    }
+
+    private List<TargetCorner> randomCorners(int count) {
+        var corners = new ArrayList<TargetCorner>(count);
+        for (int c = 0; c < count; c++) corners.add(new TargetCorner(random.nextDouble() * 1280, random.nextDouble() * 720));
+        return corners;
+    }
+
+    // PhotonLib's own encoding, as published to rawBytes. Its size estimate counts four detected
+    // corners per target, so there is room for the extra ones.
+    private static byte[] encode(PhotonPipelineResult result) {
+        int extraCorners = 0;
+        for (var target : result.getTargets()) extraCorners += Math.max(0, target.getDetectedCorners().size() - 4);
+        var packet = new Packet(result.getPacketSize() + extraCorners * 16);
+        result.populatePacket(packet);
+        return packet.getData();
+    }
+
+    private static void assertTransform(Transform3d expected, double[] transforms, int offset) {
+        var q = expected.getRotation().getQuaternion();
+        double[] values = {expected.getX(), expected.getY(), expected.getZ(), q.getW(), q.getX(), q.getY(), q.getZ()};
+        for (int i = 0; i < PhotonPacketDecoder.kTransformLength; i++) assertEquals(values[i], transforms[offset + i]);
+    }
+
+    private void assertDecodes(PhotonPacketDecoder decoder, PhotonPipelineResult result) {
+        assertTrue(decoder.decode(encode(result)));
+        assertEquals(result.getLatencyMillis(), decoder.getLatencyMillis());
+
+        var targets = result.getTargets();
+        assertEquals(targets.size(), decoder.getTargetCount());
+        for (int t = 0; t < targets.size(); t++) {
+            var target = targets.get(t);
+            assertEquals(target.getFiducialId(), decoder.getFiducialId(t));
+            assertEquals(target.getPoseAmbiguity(), decoder.getPoseAmbiguity(t));
+            assertTransform(target.getBestCameraToTarget(), decoder.getCameraToTargets(), t * PhotonPacketDecoder.kTransformLength);
+
+            var corners = target.getDetectedCorners();
+            assertEquals(corners.size(), decoder.getCornerCount(t));
+            int offset = decoder.getCornerOffset(t);
+            for (int c = 0; c < corners.size(); c++) {
+                assertEquals(corners.get(c).x, decoder.getCorners()[(offset + c) * 2]);
+                assertEquals(corners.get(c).y, decoder.getCorners()[(offset + c) * 2 + 1]);
+            }
+        }
+
+        var multiTag = result.getMultiTagResult();
+        assertEquals(multiTag.estimatedPose.isPresent, decoder.hasMultiTag());
+        if (multiTag.estimatedPose.isPresent) {
+            assertTransform(multiTag.estimatedPose.best, decoder.getMultiTagPose(), 0);
+            assertEquals(multiTag.fiducialIDsUsed.size(), decoder.getMultiTagIdCount());
+            for (int i = 0; i < multiTag.fiducialIDsUsed.size(); i++) {
+                assertEquals((int)multiTag.fiducialIDsUsed.get(i), decoder.getMultiTagId(i));
+            }
+        }
+        else {
+            assertEquals(0, decoder.getMultiTagIdCount());
+        }
+    }
+
+    private PhotonPipelineResult randomResult(int targetCount, boolean multiTag) {
+        var targets = new ArrayList<PhotonTrackedTarget>(targetCount);
+        var ids = new ArrayList<Integer>(targetCount);
+        for (int t = 0; t < targetCount; t++) {
+            int id = 1 + random.nextInt(16);
+            ids.add(id);
+            // detected corners beyond the four of a tag, e.g. from an object pipeline
+            targets.add(new PhotonTrackedTarget(random.nextGaussian(), random.nextGaussian(), random.nextDouble(), random.nextGaussian(),
+                id, randomTransform(), randomTransform(), random.nextDouble(), randomCorners(4), randomCorners(t % 3 == 2 ? 6 : 4)));
+        }
+        var multiTagResult = multiTag
+            ? new MultiTargetPNPResults(new PNPResults(randomTransform(), randomTransform(), 0.1, 0.5, 0.7), ids)
+            : new MultiTargetPNPResults();
+        return new PhotonPipelineResult(random.nextDouble() * 50, targets, multiTagResult);
+    }
+
+    @Test
+    void decodesPhotonLibPackets() {
+        var decoder = new PhotonPacketDecoder();
+        for (int targetCount : new int[]{0, 1, 5, 12}) {
+            assertDecodes(decoder, randomResult(targetCount, false));
+            if (targetCount > 0) assertDecodes(decoder, randomResult(targetCount, true));
+        }
+    }
+
+    @Test
+    void rejectsCutOffPackets() {
+        var decoder = new PhotonPacketDecoder();
+        var packet = encode(randomResult(3, true));
+        // cut off within the last target, past any padding
+        assertFalse(decoder.decode(Arrays.copyOf(packet, packet.length - 64)));
+        assertEquals(0, decoder.getTargetCount());
+        assertFalse(decoder.decode(new byte[0]));
+        // zero padding is accepted, other trailing bytes are another layout
+        var padded = Arrays.copyOf(packet, packet.length + 8);
+        assertTrue(decoder.decode(padded));
+        assertEquals(3, decoder.getTargetCount());
+        padded[padded.length - 1] = 1;
+        assertFalse(decoder.decode(padded));
+        assertTrue(decoder.decode(packet));
+        assertEquals(3, decoder.getTargetCount());
+    }
+}
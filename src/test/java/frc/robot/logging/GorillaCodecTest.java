@@ -0,0 +1,85 @@
+package frc.robot.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class GorillaCodecTest {
+    // delta-of-deltas at both ends of every bucket and just past them, then the raw 64 bit case
+    private static final long[] kDeltaOfDeltas = {
+        0, 64, -63, 65, -64, 2048, -2047, 2049, -2048, 524288, -524287, 524289, -524288, 1L << 40, -(1L << 40), 0, 0};
+
+    @Test
+    void timestampsRoundTripInEveryBucket() {
+        var timestamps = new long[kDeltaOfDeltas.length + 2];
+        timestamps[0] = 1_700_000_000_000_000L;
+        timestamps[1] = timestamps[0] + 20_000;
+        for (int i = 0; i < kDeltaOfDeltas.length; i++) {
+            long delta = timestamps[i + 1] - timestamps[i];
+            timestamps[i + 2] = timestamps[i + 1] + delta + kDeltaOfDeltas[i];
+        }
+
+        var out = new BitWriter(64);
+        var writeState = new GorillaCodec.TimestampState();
+        for (long timestamp : timestamps) GorillaCodec.writeTimestamp(out, writeState, timestamp);
+
+        var in = new BitReader();
+        in.reset(out.words());
+        var readState = new GorillaCodec.TimestampState();
+        for (long timestamp : timestamps) assertEquals(timestamp, GorillaCodec.readTimestamp(in, readState));
+    }
+
+    // first value, repeats, changes inside the previous meaningful bit window and ones needing a new window
+    private static final double[] kValues = {
+        1.5, 1.5, 1.5, 1.25, 1.375, 1.375, -3e-9, 1e300, 1e300, Double.NaN, 0.0, -0.0, 0.1, 0.1000000000000001, 0.1, 1.5};
+
+    @Test
+    void doublesRoundTrip() {
+        var out = new BitWriter(64);
+        var writeState = new GorillaCodec.XorState(64);
+        for (double value : kValues) GorillaCodec.writeValue(out, writeState, Double.doubleToRawLongBits(value));
+
+        var in = new BitReader();
+        in.reset(out.words());
+        var readState = new GorillaCodec.XorState(64);
+        for (double value : kValues) {
+            assertEquals(Double.doubleToRawLongBits(value), GorillaCodec.readValue(in, readState));
+        }
+    }
+
+    @Test
+    void floatsRoundTrip() {
+        var out = new BitWriter(64);
+        var writeState = new GorillaCodec.XorState(32);
+        for (double value : kValues) GorillaCodec.writeValue(out, writeState, Float.floatToRawIntBits((float)value) & 0xFFFFFFFFL);
+
+        var in = new BitReader();
+        in.reset(out.words());
+        var readState = new GorillaCodec.XorState(32);
+        for (double value : kValues) {
+            assertEquals(Float.floatToRawIntBits((float)value), (int)GorillaCodec.readValue(in, readState));
+        }
+    }
+
+    // the states are reset at each block, as the writer and reader do
+    @Test
+    void statesRestartAfterReset() {
+        var out = new BitWriter(64);
+        var timestampState = new GorillaCodec.TimestampState();
+        var valueState = new GorillaCodec.XorState(64);
+        for (int i = 0; i < 3; i++) {
+            GorillaCodec.writeTimestamp(out, timestampState, 1000 + i * 20);
+            GorillaCodec.writeValue(out, valueState, Double.doubleToRawLongBits(i));
+        }
+        out.clear();
+        timestampState.reset();
+        valueState.reset();
+        GorillaCodec.writeTimestamp(out, timestampState, 5000);
+        GorillaCodec.writeValue(out, valueState, Double.doubleToRawLongBits(7));
+
+        var in = new BitReader();
+        in.reset(out.words());
+        assertEquals(5000, GorillaCodec.readTimestamp(in, new GorillaCodec.TimestampState()));
+        assertEquals(Double.doubleToRawLongBits(7), GorillaCodec.readValue(in, new GorillaCodec.XorState(64)));
+    }
+}
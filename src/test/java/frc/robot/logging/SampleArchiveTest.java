@@ -0,0 +1,118 @@
+package frc.robot.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+
+class SampleArchiveTest {
+    @TempDir
+    Path directory;
+
+    // one full block and a partial last block for tag 1, partial blocks for tags 2 and 3
+    private static final int kFrames = SampleArchiveWriter.kSamplesPerBlock + 100;
+
+    private static Pose3d pose(int frame) {
+        // the pose repeats for stretches of frames, with small changes between them
+        int step = frame / 10;
+        return new Pose3d(1 + step * 1e-4, -2, 0.5 + (step % 3) * 1e-3, new Rotation3d(0, 0.1, step * 1e-3));
+    }
+
+    @Test
+    void samplesRoundTrip() throws Exception {
+        var path = directory.resolve("samples.vsga");
+        var written = new HashMap<Integer, List<double[]>>();
+        var archive = new SampleArchiveWriter(path);
+        double timestamp = 10;
+        for (int frame = 0; frame < kFrames; frame++) {
+            // frame intervals jitter like a camera's, with an occasional gap
+            timestamp += frame % 50 == 49 ? 2.5 : 0.02 + (frame % 7) * 1e-4;
+            var pose = pose(frame);
+            double[] corners = {100 + frame * 0.25, 200, 150, 200, 150, 250, 100 + frame * 0.25, 250};
+            archive.add(1, pose, corners, timestamp);
+            expect(written, 1, pose, corners, 0, timestamp);
+            if (frame % 3 == 0) {
+                // fewer than four corners, the rest are NaN
+                double[] twoCorners = {320, 240, 330, 240};
+                archive.add(2, pose, twoCorners, timestamp);
+                expect(written, 2, pose, twoCorners, 0, timestamp);
+            }
+            if (frame % 5 == 0) {
+                // more than four corners are split across samples
+                double[] sixCorners = {10, 20, 30, 20, 40, 30, 30, 40, 10, 40, 5, 30};
+                archive.add(3, pose, sixCorners, timestamp);
+                expect(written, 3, pose, sixCorners, 0, timestamp);
+                expect(written, 3, pose, sixCorners, SampleArchiveWriter.kCornersPerSample, timestamp);
+            }
+            archive.flush();
+        }
+        archive.close();
+        assertTrue(archive.awaitClosed(5, TimeUnit.SECONDS));
+        // late samples, e.g. from a listener thread, are ignored
+        archive.add(1, pose(0), new double[]{}, timestamp + 1);
+        archive.flush();
+
+        var read = new HashMap<Integer, List<double[]>>();
+        var blockSizes = new ArrayList<Integer>();
+        try (var reader = new SampleArchiveReader(path)) {
+            while (reader.nextBlock()) {
+                blockSizes.add(reader.getSampleCount());
+                var samples = read.computeIfAbsent(reader.getId(), id -> new ArrayList<>());
+                for (int s = 0; s < reader.getSampleCount(); s++) {
+                    double[] row = new double[1 + SampleArchiveReader.kColumns];
+                    row[0] = reader.getTimestamps()[s];
+                    for (int c = 0; c < SampleArchiveReader.kColumns; c++) row[1 + c] = reader.getColumn(c)[s];
+                    samples.add(row);
+                }
+            }
+            assertFalse(reader.nextBlock());
+        }
+
+        assertTrue(blockSizes.contains(SampleArchiveWriter.kSamplesPerBlock));
+        assertTrue(blockSizes.contains(kFrames - SampleArchiveWriter.kSamplesPerBlock));
+        assertEquals(written.keySet(), read.keySet());
+        for (var id : written.keySet()) {
+            var expected = written.get(id);
+            var actual = read.get(id);
+            assertEquals(expected.size(), actual.size());
+            for (int s = 0; s < expected.size(); s++) {
+                // microsecond timestamps, double poses and float corners
+                assertEquals(expected.get(s)[0], actual.get(s)[0], 1e-6);
+                for (int c = 1; c <= SampleArchiveWriter.kPoseColumns; c++) assertEquals(expected.get(s)[c], actual.get(s)[c]);
+                for (int c = 1 + SampleArchiveWriter.kPoseColumns; c < expected.get(s).length; c++) {
+                    assertEquals((float)expected.get(s)[c], (float)actual.get(s)[c]);
+                }
+            }
+        }
+    }
+
+    private static void expect(HashMap<Integer, List<double[]>> written, int id, Pose3d pose, double[] corners, int offset, double timestamp) {
+        var q = pose.getRotation().getQuaternion();
+        double[] row = new double[1 + SampleArchiveReader.kColumns];
+        row[0] = timestamp;
+        row[1] = pose.getX();
+        row[2] = pose.getY();
+        row[3] = pose.getZ();
+        row[4] = q.getW();
+        row[5] = q.getX();
+        row[6] = q.getY();
+        row[7] = q.getZ();
+        for (int i = 0; i < SampleArchiveWriter.kCornersPerSample; i++) {
+            boolean present = offset + i < corners.length / 2;
+            row[1 + SampleArchiveReader.kCornerX + i] = present ? corners[(offset + i) * 2] : Double.NaN;
+            row[1 + SampleArchiveReader.kCornerY + i] = present ? corners[(offset + i) * 2 + 1] : Double.NaN;
+        }
+        written.computeIfAbsent(id, key -> new ArrayList<>()).add(row);
+    }
+}
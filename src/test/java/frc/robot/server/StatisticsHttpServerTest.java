@@ -0,0 +1,95 @@
+package frc.robot.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.statistics.StatisticsRegistry;
+import frc.robot.statistics.TargetStatistics;
+
+class StatisticsHttpServerTest {
+    private static final String kName = "HttpServerTest Stats";
+
+    private static TargetStatistics createStats() {
+        var stats = new TargetStatistics(kName, 1.0);
+        for (int i = 0; i < 10; i++) {
+            stats.update(1 + (i % 2) * 0.02, 2, 0, 1, 0, 0, 0, new double[]{100, 100, 200, 100, 200, 200, 100, 200}, i * 0.02);
+        }
+        return stats;
+    }
+
+    private static HttpURLConnection open(int port, String path, String method) throws IOException {
+        var connection = (HttpURLConnection)new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        return connection;
+    }
+
+    @Test
+    void servesRegisteredStatistics() throws IOException {
+        var registry = new StatisticsRegistry();
+        var stats = createStats();
+        registry.register(stats);
+
+        try (var server = new StatisticsHttpServer(registry, 0, 0.01)) {
+            var json = open(server.getPort(), "/stats", "GET");
+            assertEquals(200, json.getResponseCode());
+            assertEquals("application/json", json.getContentType());
+            String body = new String(json.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(body.startsWith("[{\"name\":\"" + kName + "\""), body);
+            assertTrue(body.contains("\"updateCount\":" + stats.getUpdateCount()), body);
+            assertTrue(body.contains("\"samples\":10"), body);
+
+            var bin = open(server.getPort(), "/stats.bin", "GET");
+            assertEquals(200, bin.getResponseCode());
+            var buffer = ByteBuffer.wrap(bin.getInputStream().readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(1, buffer.getInt());
+            var name = new byte[buffer.getShort()];
+            buffer.get(name);
+            assertEquals(kName, new String(name, StandardCharsets.UTF_8));
+            assertEquals(stats.getUpdateCount(), buffer.getLong());
+            assertEquals(0.18, buffer.getDouble(), 1e-9);
+            assertEquals(10, buffer.getLong());
+            buffer.get();
+            assertEquals(1.01, buffer.getDouble(), 1e-9);
+            assertEquals(2, buffer.getDouble(), 1e-9);
+            assertEquals(0, buffer.getDouble(), 1e-9);
+            assertEquals(0.01, buffer.getDouble(), 1e-9);
+
+            var events = open(server.getPort(), "/events", "GET");
+            assertEquals(200, events.getResponseCode());
+            assertEquals("text/event-stream", events.getContentType());
+            try (var reader = new BufferedReader(new InputStreamReader(events.getInputStream(), StandardCharsets.UTF_8))) {
+                assertEquals("event: stats", reader.readLine());
+                String data = reader.readLine();
+                assertTrue(data.startsWith("data: [{\"name\":\"" + kName + "\""), data);
+                assertEquals("", reader.readLine());
+            }
+            events.disconnect();
+        }
+        finally {
+            stats.close();
+        }
+    }
+
+    @Test
+    void rejectsOtherMethods() throws IOException {
+        var registry = new StatisticsRegistry();
+        try (var server = new StatisticsHttpServer(registry, 0, 0.01)) {
+            for (var path : new String[]{"/stats", "/stats.bin", "/events"}) {
+                assertEquals(405, open(server.getPort(), path, "POST").getResponseCode(), path);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CircularStatisticsTest {
+    // driven by a compact SampleWindow with replacements and evictions, against a scan of the window
+    @Test
+    void matchesWindowScan() {
+        var random = new Random(31);
+        var window = new SampleWindow(2, 0.5, true);
+        var circular = new CircularStatistics(0, 1);
+        window.setAccumulator(circular);
+        double timestamp = 0;
+        for (int step = 0; step < 5000; step++) {
+            if (random.nextInt(4) != 0) timestamp += random.nextInt(3) == 0 ? 0.2 : 0.01;
+            // one column around +-pi, one around 0
+            window.add(timestamp, new double[]{Math.IEEEremainder(Math.PI + random.nextGaussian() * 0.1, 2 * Math.PI), random.nextGaussian() * 0.1});
+
+            assertEquals(window.size(), circular.getCount());
+            for (int c = 0; c < 2; c++) {
+                double sin = 0, cos = 0;
+                for (int k = 0; k < window.size(); k++) {
+                    sin += Math.sin(window.get(k, c));
+                    cos += Math.cos(window.get(k, c));
+                }
+                double r = Math.min(1, Math.hypot(sin, cos) / window.size());
+                assertEquals(0, Math.IEEEremainder(Math.atan2(sin, cos) - circular.getMean(c), 2 * Math.PI), 1e-9);
+                assertEquals(Math.sqrt(-2 * Math.log(r)), circular.getStdDev(c), 1e-6);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class FFTTest {
+    @Test
+    void matchesDirectDft() {
+        var random = new Random(40);
+        for (int size = 1; size <= 512; size <<= 1) {
+            double[] re = new double[size];
+            double[] im = new double[size];
+            for (int i = 0; i < size; i++) {
+                re[i] = random.nextGaussian();
+                im[i] = random.nextGaussian();
+            }
+            double[] expectedRe = new double[size];
+            double[] expectedIm = new double[size];
+            for (int k = 0; k < size; k++) {
+                for (int j = 0; j < size; j++) {
+                    double angle = -2 * Math.PI * ((long)j * k % size) / size;
+                    expectedRe[k] += re[j] * Math.cos(angle) - im[j] * Math.sin(angle);
+                    expectedIm[k] += re[j] * Math.sin(angle) + im[j] * Math.cos(angle);
+                }
+            }
+
+            FFT.forSize(size).transform(re, im);
+            for (int k = 0; k < size; k++) {
+                assertEquals(expectedRe[k], re[k], 1e-9 * size);
+                assertEquals(expectedIm[k], im[k], 1e-9 * size);
+            }
+        }
+    }
+
+    @Test
+    void sizesArePowersOfTwo() {
+        assertEquals(1, FFT.nextPowerOfTwo(0));
+        assertEquals(1, FFT.nextPowerOfTwo(1));
+        assertEquals(512, FFT.nextPowerOfTwo(300));
+        assertEquals(512, FFT.nextPowerOfTwo(512));
+        assertThrows(IllegalArgumentException.class, () -> FFT.forSize(300));
+    }
+}
@@ -0,0 +1,51 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IndexableSkipListTest {
+    private static double median(List<Double> sorted) {
+        int n = sorted.size();
+        return n % 2 == 1 ? sorted.get(n / 2) : (sorted.get(n / 2 - 1) + sorted.get(n / 2)) / 2;
+    }
+
+    // random inserts and removals, with repeated values, against a sorted list
+    @Test
+    void matchesSortedList() {
+        var random = new Random(41);
+        var list = new IndexableSkipList();
+        var expected = new ArrayList<Double>();
+        for (int step = 0; step < 20000; step++) {
+            if (!expected.isEmpty() && random.nextInt(3) == 0) {
+                double value = expected.get(random.nextInt(expected.size()));
+                assertTrue(list.remove(value));
+                expected.remove(value);
+            }
+            else {
+                double value = random.nextInt(50) / 4.0;
+                list.add(value);
+                expected.add(value);
+            }
+            Collections.sort(expected);
+
+            assertEquals(expected.size(), list.size());
+            if (expected.isEmpty()) continue;
+            int index = random.nextInt(expected.size());
+            double ranked = expected.get(index);
+            assertEquals(ranked, list.get(index));
+            double median = median(expected);
+            assertEquals(median, list.median());
+            var deviations = new ArrayList<Double>();
+            for (double value : expected) deviations.add(Math.abs(value - median));
+            Collections.sort(deviations);
+            assertEquals(median(deviations), list.medianAbsoluteDeviation(), 1e-12);
+        }
+    }
+}
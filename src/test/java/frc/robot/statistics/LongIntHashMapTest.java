@@ -0,0 +1,77 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntHashMapTest {
+    private static final int kCapacity = 16;
+
+    // home slot in a table of kCapacity, as LongIntHashMap hashes
+    private static int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & (kCapacity - 1);
+    }
+
+    private static void assertSameEntries(HashMap<Long, Integer> expected, LongIntHashMap map, Iterable<Long> keys) {
+        assertEquals(expected.size(), map.size());
+        for (long key : keys) assertEquals((int)expected.getOrDefault(key, LongIntHashMap.kMissing), map.get(key));
+    }
+
+    // keys homed in the last slots and the first one, so probe runs wrap around the end of the table
+    // and removals shift entries back across it
+    @Test
+    void removeMatchesHashMapAcrossWrappedRuns() {
+        var keys = new ArrayList<Long>();
+        for (long key = 0; keys.size() < 24; key++) {
+            int home = home(key);
+            if (home >= kCapacity - 3 || home == 0) keys.add(key);
+        }
+
+        var random = new Random(34);
+        for (int run = 0; run < 200; run++) {
+            // at most half full, the table keeps kCapacity slots
+            var map = new LongIntHashMap(kCapacity / 2);
+            var expected = new HashMap<Long, Integer>();
+            for (int step = 0; step < 200; step++) {
+                long key = keys.get(random.nextInt(keys.size()));
+                if (expected.size() < kCapacity / 2 && random.nextBoolean()) {
+                    int value = random.nextInt(1000);
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+                else {
+                    assertEquals((int)expected.getOrDefault(key, LongIntHashMap.kMissing), map.remove(key));
+                    expected.remove(key);
+                }
+                assertSameEntries(expected, map, keys);
+            }
+        }
+    }
+
+    @Test
+    void removeMatchesHashMapWhileGrowing() {
+        var random = new Random(35);
+        var map = new LongIntHashMap();
+        var expected = new HashMap<Long, Integer>();
+        var keys = new ArrayList<Long>();
+        for (int i = 0; i < 400; i++) keys.add(random.nextLong() >> random.nextInt(64));
+        for (int step = 0; step < 20000; step++) {
+            long key = keys.get(random.nextInt(keys.size()));
+            if (random.nextInt(3) != 0) {
+                int value = random.nextInt(1000);
+                map.put(key, value);
+                expected.put(key, value);
+            }
+            else {
+                assertEquals((int)expected.getOrDefault(key, LongIntHashMap.kMissing), map.remove(key));
+                expected.remove(key);
+            }
+        }
+        assertSameEntries(expected, map, keys);
+    }
+}
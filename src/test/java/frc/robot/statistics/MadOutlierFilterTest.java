@@ -0,0 +1,34 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MadOutlierFilterTest {
+    @Test
+    void rejectsSamplesFarFromTheMedian() {
+        var filter = new MadOutlierFilter(new int[]{0, 1}, new int[]{1}, 3.5);
+        var random = new Random(1);
+        for (int i = 0; i < 50; i++) filter.add(i, new double[]{random.nextGaussian() * 0.01, Math.PI + random.nextGaussian() * 0.01});
+
+        assertFalse(filter.isOutlier(new double[]{0.005, Math.PI}));
+        // angles wrap around the median
+        assertFalse(filter.isOutlier(new double[]{0, -Math.PI + 0.005}));
+        assertTrue(filter.isOutlier(new double[]{0.5, Math.PI}));
+        assertTrue(filter.isOutlier(new double[]{0, Math.PI / 2}));
+    }
+
+    // quantized values without spread can't tell an outlier from the next step
+    @Test
+    void columnWithoutSpreadRejectsNothing() {
+        var filter = new MadOutlierFilter(new int[]{0, 1}, new int[]{}, 3.5);
+        var random = new Random(2);
+        for (int i = 0; i < 50; i++) filter.add(i, new double[]{1.25, random.nextGaussian() * 0.01});
+
+        assertFalse(filter.isOutlier(new double[]{1.5, 0}));
+        assertTrue(filter.isOutlier(new double[]{1.5, 1}));
+    }
+}
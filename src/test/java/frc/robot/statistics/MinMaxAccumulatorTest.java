@@ -0,0 +1,67 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+
+class MinMaxAccumulatorTest {
+    // driven by a SampleWindow, with repeated timestamps replacing the newest sample, against a scan
+    // of the window
+    @Test
+    void matchesWindowScan() {
+        var random = new Random(48);
+        var window = new SampleWindow(2, 0.5, false);
+        var extremes = new MinMaxAccumulator(new int[]{0, 1}, new int[]{1});
+        window.setAccumulator(extremes);
+        double timestamp = 0;
+        for (int step = 0; step < 20000; step++) {
+            if (random.nextInt(4) != 0) timestamp += random.nextInt(3) == 0 ? 0.2 : 0.01;
+            // quantized values so ties are common, angles near +-pi
+            double angle = Math.PI - random.nextInt(8) * 0.1;
+            window.add(timestamp, new double[]{random.nextInt(20), random.nextBoolean() ? angle : -angle});
+
+            assertEquals(window.size(), extremes.size());
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            double angleMin = Double.POSITIVE_INFINITY, angleMax = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < window.size(); k++) {
+                min = Math.min(min, window.get(k, 0));
+                max = Math.max(max, window.get(k, 0));
+                // the angles spread less than pi, so they unwrap the same about any of them
+                double reference = window.get(0, 1);
+                double unwrapped = reference + MathUtil.angleModulus(window.get(k, 1) - reference);
+                angleMin = Math.min(angleMin, unwrapped);
+                angleMax = Math.max(angleMax, unwrapped);
+            }
+            assertEquals(min, extremes.getMin(0));
+            assertEquals(max, extremes.getMax(0));
+            assertEquals(angleMax - angleMin, extremes.result().getRange(1), 1e-12);
+        }
+    }
+
+    // only the last removal of the newest restores the candidates it dropped, a second one rebuilds them
+    @Test
+    void removesTheNewestRepeatedly() {
+        var extremes = new MinMaxAccumulator(0);
+        extremes.add(0, new double[]{3});
+        extremes.add(1, new double[]{1});
+        extremes.add(2, new double[]{4});
+        extremes.add(3, new double[]{5});
+        assertEquals(1, extremes.getMin(0));
+        assertEquals(5, extremes.getMax(0));
+
+        extremes.remove(3, new double[]{5});
+        assertEquals(4, extremes.getMax(0));
+        extremes.remove(2, new double[]{4});
+        assertEquals(1, extremes.getMin(0));
+        assertEquals(3, extremes.getMax(0));
+
+        extremes.add(2, new double[]{0});
+        extremes.remove(0, new double[]{3});
+        assertEquals(0, extremes.getMin(0));
+        assertEquals(1, extremes.getMax(0));
+    }
+}
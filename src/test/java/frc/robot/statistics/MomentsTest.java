@@ -0,0 +1,52 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MomentsTest {
+    static Moments direct(double[][] samples, int from, int to) {
+        int dimension = samples[0].length;
+        double[] mean = new double[dimension];
+        double[] m2 = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            for (int s = from; s < to; s++) mean[i] += samples[s][i];
+            if (to > from) mean[i] /= to - from;
+            for (int s = from; s < to; s++) m2[i] += (samples[s][i] - mean[i]) * (samples[s][i] - mean[i]);
+        }
+        return new Moments(to - from, mean, m2);
+    }
+
+    static void assertMomentsEqual(Moments expected, Moments actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        for (int i = 0; i < expected.getDimension(); i++) {
+            assertEquals(expected.getMean(i), actual.getMean(i), 1e-9 * (1 + Math.abs(expected.getMean(i))));
+            assertEquals(expected.getM2(i), actual.getM2(i), 1e-9 * (1 + expected.getM2(i)));
+        }
+    }
+
+    // shards of uneven (and empty) size merged in order equal one pass over their union
+    @Test
+    void mergeMatchesSinglePass() {
+        var random = new Random(30);
+        for (int trial = 0; trial < 200; trial++) {
+            int n = random.nextInt(300);
+            double[][] samples = new double[Math.max(n, 1)][2];
+            for (int s = 0; s < n; s++) {
+                samples[s][0] = 1000 + random.nextGaussian() * 0.01;
+                samples[s][1] = random.nextGaussian() * 50;
+            }
+
+            var merged = Moments.empty(2);
+            int from = 0;
+            while (from < n) {
+                int to = Math.min(n, from + random.nextInt(40));
+                merged = merged.merge(direct(samples, from, to));
+                from = to;
+            }
+            assertMomentsEqual(direct(samples, 0, n), merged);
+        }
+    }
+}
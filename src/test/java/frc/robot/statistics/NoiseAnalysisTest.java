@@ -0,0 +1,57 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class NoiseAnalysisTest {
+    private static final int kFftSize = 1024;
+    private static final int kSeries = 64;
+    private static final double kGridSeconds = 0.02;
+    private static final double kSigma = 0.5;
+
+    // white noise sampled on the grid: a flat one-sided PSD of 2 sigma^2 dt and an Allan deviation of
+    // sigma / sqrt(m), averaged over several series
+    @Test
+    void whiteNoiseIsFlatAndAveragesDown() {
+        var random = new Random(40);
+        var analysis = new NoiseAnalysis();
+        var taus = NoiseAnalysis.taus(kGridSeconds, kFftSize);
+        double[] psdSum = new double[kFftSize / 2 + 1];
+        double[] allanVarianceSum = new double[taus.length];
+        double[] timestamps = new double[kFftSize];
+        double[] values = new double[kFftSize];
+        for (int s = 0; s < kSeries; s++) {
+            for (int i = 0; i < kFftSize; i++) {
+                timestamps[i] = 10 + i * kGridSeconds;
+                values[i] = 3 + random.nextGaussian() * kSigma;
+            }
+            assertEquals(taus.length, analysis.accumulate(timestamps, values, kFftSize, kGridSeconds, kFftSize, psdSum, allanVarianceSum));
+        }
+
+        // the Hann window and the removed mean leak into the lowest bins
+        double psd = 0;
+        for (int k = 4; k < kFftSize / 2; k++) psd += psdSum[k] / kSeries;
+        psd /= kFftSize / 2 - 4;
+        assertEquals(2 * kSigma * kSigma * kGridSeconds, psd, 0.03 * psd);
+
+        // the longest taus have too few independent terms for a tight bound
+        for (int i = 0; i < taus.length - 2; i++) {
+            int m = 1 << i;
+            assertEquals(taus[i], m * kGridSeconds, 1e-12);
+            double deviation = Math.sqrt(allanVarianceSum[i] / kSeries);
+            assertEquals(kSigma / Math.sqrt(m), deviation, 0.05 * kSigma / Math.sqrt(m));
+        }
+    }
+
+    @Test
+    void gridCoversTheSeriesUpToTheFftSize() {
+        double[] timestamps = {0, 0.015, 0.05, 0.1};
+        assertEquals(0, NoiseAnalysis.gridLength(timestamps, 1, 0.02, 64));
+        assertEquals(6, NoiseAnalysis.gridLength(timestamps, 4, 0.02, 64));
+        assertEquals(4, NoiseAnalysis.gridLength(timestamps, 4, 0.02, 4));
+        assertEquals(1 / 1.28, NoiseAnalysis.frequencies(0.02, 64)[1], 1e-12);
+    }
+}
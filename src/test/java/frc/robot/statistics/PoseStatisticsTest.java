@@ -0,0 +1,47 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PoseStatisticsTest {
+    // after the pose moves, rejected samples still age out the old window so the new pose is accepted
+    @Test
+    void outlierRejectionRecoversAfterPoseChange() {
+        var stats = new PoseStatistics(null, 1.0);
+        stats.setOutlierRejection(true);
+        var random = new Random(3);
+        double timestamp = 0;
+        for (int i = 0; i < 100; i++, timestamp += 0.02) {
+            stats.update(random.nextGaussian() * 0.01, 2, 0, 1, 0, 0, 0, timestamp);
+        }
+        for (int i = 0; i < 200; i++, timestamp += 0.02) {
+            stats.update(1 + random.nextGaussian() * 0.01, 2, 0, 1, 0, 0, 0, timestamp);
+        }
+
+        assertTrue(stats.getRejectedCount() > 0);
+        assertEquals(1, stats.getTranslationAvg().getX(), 0.01);
+        assertEquals(2, stats.getTranslationAvg().getY(), 1e-9);
+    }
+
+    // toggling circular rotation stats off and on starts them over from the current window
+    @Test
+    void circularRotationStatsFollowTheWindowWhenToggled() {
+        var stats = new PoseStatistics(null, 1.0);
+        stats.setCircularRotationStats(true);
+        double timestamp = 0;
+        for (int i = 0; i < 100; i++, timestamp += 0.02) stats.update(0, 0, 0, Math.cos(0.25), 0, 0, Math.sin(0.25), timestamp);
+        assertEquals(0.5, stats.getRotationAvg().getZ(), 1e-9);
+
+        stats.setCircularRotationStats(false);
+        for (int i = 0; i < 100; i++, timestamp += 0.02) stats.update(0, 0, 0, Math.cos(-0.25), 0, 0, Math.sin(-0.25), timestamp);
+        stats.setCircularRotationStats(true);
+        stats.update(0, 0, 0, Math.cos(-0.25), 0, 0, Math.sin(-0.25), timestamp);
+
+        assertEquals(-0.5, stats.getRotationAvg().getZ(), 1e-9);
+        assertEquals(0, stats.getRotationStdDev()[2], 1e-6);
+    }
+}
@@ -0,0 +1,78 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Rotation3d;
+
+class StatisticsSummaryTest {
+    // summary of the samples [from, to) of some z rotations, translations and keyed corners
+    private static StatisticsSummary summarize(double[] angles, double[][] translations, long[] cornerKeys, double[][][] corners, int from, int to) {
+        var rotations = new Rotation3d[to - from];
+        double[][] zAngles = new double[Math.max(to - from, 1)][3];
+        for (int s = from; s < to; s++) {
+            rotations[s - from] = new Rotation3d(0, 0, angles[s]);
+            zAngles[s - from][2] = angles[s];
+        }
+        var cornerMoments = new ArrayList<Moments>();
+        for (int c = 0; c < cornerKeys.length; c++) cornerMoments.add(MomentsTest.direct(corners[c], from, to));
+        return new StatisticsSummary(
+            MomentsTest.direct(translations, from, to),
+            MomentsTest.direct(zAngles, 0, to - from),
+            Statistics.findQuaternionAccumulator(rotations),
+            cornerKeys,
+            cornerMoments);
+    }
+
+    @Test
+    void mergeMatchesSinglePass() {
+        var random = new Random(30);
+        int n = 200, split = 70;
+        double[] angles = new double[n];
+        double[][] translations = new double[n][3];
+        double[][][] corners = new double[3][n][2];
+        for (int s = 0; s < n; s++) {
+            angles[s] = 0.3 + random.nextGaussian() * 0.02;
+            for (int i = 0; i < 3; i++) translations[s][i] = i + random.nextGaussian() * 0.01;
+            for (int c = 0; c < 3; c++) {
+                corners[c][s][0] = 100 * c + random.nextGaussian();
+                corners[c][s][1] = 50 * c + random.nextGaussian();
+            }
+        }
+        // tag 1 corner 0 is seen by both shards, tag 1 corner 1 only by the first, tag 2 corner 0 only by the second
+        long[] keys = {CornerStatistics.cornerKey(1, 0), CornerStatistics.cornerKey(1, 1), CornerStatistics.cornerKey(2, 0)};
+        var first = summarize(angles, translations, new long[]{keys[0], keys[1]}, new double[][][]{corners[0], corners[1]}, 0, split);
+        var second = summarize(angles, translations, new long[]{keys[0], keys[2]}, new double[][][]{corners[0], corners[2]}, split, n);
+        var merged = second.merge(first);
+
+        MomentsTest.assertMomentsEqual(MomentsTest.direct(translations, 0, n), merged.getTranslationMoments());
+
+        var all = new Rotation3d[n];
+        for (int s = 0; s < n; s++) all[s] = new Rotation3d(0, 0, angles[s]);
+        double avg = Statistics.findAverage(all).getZ();
+        double m2 = 0;
+        for (double angle : angles) m2 += (angle - avg) * (angle - avg);
+        assertEquals(n, merged.getRotationMoments().getCount());
+        assertEquals(avg, merged.getRotationMoments().getMean(2), 1e-9);
+        assertEquals(m2, merged.getRotationMoments().getM2(2), 1e-9);
+
+        assertArrayEquals(keys, merged.getCornerKeys());
+        List<Moments> mergedCorners = merged.getCornerMoments();
+        MomentsTest.assertMomentsEqual(MomentsTest.direct(corners[0], 0, n), mergedCorners.get(0));
+        MomentsTest.assertMomentsEqual(MomentsTest.direct(corners[1], 0, split), mergedCorners.get(1));
+        MomentsTest.assertMomentsEqual(MomentsTest.direct(corners[2], split, n), mergedCorners.get(2));
+    }
+
+    @Test
+    void cornerKeysMustBeAscending() {
+        assertThrows(IllegalArgumentException.class, () -> StatisticsSummary.kEmpty.withCorners(
+            new long[]{CornerStatistics.cornerKey(2, 0), CornerStatistics.cornerKey(1, 0)}, List.of(Moments.empty(2), Moments.empty(2))));
+    }
+}
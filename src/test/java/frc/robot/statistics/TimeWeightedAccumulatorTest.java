@@ -0,0 +1,94 @@
+package frc.robot.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TimeWeightedAccumulatorTest {
+    private static final double kMaxInterval = PoseStatistics.kMaxWeightIntervalSeconds;
+
+    // weights as defined: the interval to the next sample, capped, and none for the newest sample
+    private static double[] directWeights(SampleWindow window) {
+        int n = window.size();
+        var weights = new double[n];
+        for (int k = 0; k < n - 1; k++) weights[k] = Math.min(window.getTimestamp(k + 1) - window.getTimestamp(k), kMaxInterval);
+        return weights;
+    }
+
+    // driven by a compact SampleWindow with replacements, evictions and a rebase, against a scan of the window
+    @Test
+    void matchesDirectWeightedVariance() {
+        var random = new Random(39);
+        var window = new SampleWindow(2, 0.5, true);
+        var moments = new MomentAccumulator(0, 1);
+        var weighting = new TimeWeightedAccumulator<>(moments, kMaxInterval);
+        window.setAccumulator(weighting);
+        // starts close to the compact rebase threshold so the window rebases during the run
+        double timestamp = 1000;
+        var weightColumn = new double[0];
+        for (int step = 0; step < 5000; step++) {
+            int event = random.nextInt(20);
+            if (event == 0) {
+                // no sample for a while, the window ages out without an add
+                timestamp += 0.3;
+                window.evict(timestamp);
+            }
+            else {
+                // repeated timestamps replace the newest row, occasional gaps exceed the weight cap
+                if (event > 4) timestamp += event < 7 ? 0.2 : 0.01 + random.nextInt(3) * 0.01;
+                window.add(timestamp, new double[]{random.nextGaussian(), 5 + random.nextGaussian() * 0.1});
+            }
+
+            var weights = directWeights(window);
+            weightColumn = Statistics.ensureCapacity(weightColumn, window.size());
+            double intervalTotal = PoseStatistics.findIntervalWeights(window, weightColumn);
+            double totalWeight = 0;
+            for (int k = 0; k < weights.length; k++) {
+                assertEquals(weights[k], weightColumn[k], 1e-9);
+                totalWeight += weights[k];
+            }
+            assertEquals(totalWeight, intervalTotal, 1e-9);
+            assertEquals(totalWeight, moments.getTotalWeight(), 1e-6);
+            if (totalWeight == 0) continue;
+
+            for (int c = 0; c < 2; c++) {
+                double mean = 0;
+                for (int k = 0; k < weights.length; k++) mean += weights[k] * window.get(k, c);
+                mean /= totalWeight;
+                double sqErr = 0;
+                for (int k = 0; k < weights.length; k++) {
+                    double d = window.get(k, c) - mean;
+                    sqErr += weights[k] * d*d;
+                }
+                assertEquals(mean, moments.getMean(c), 1e-6);
+                assertEquals(Math.sqrt(sqErr / totalWeight), moments.getStdDev(c), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void disabledWeighsEverySampleEqually() {
+        var random = new Random(40);
+        var window = new SampleWindow(1, 0.5, true);
+        var moments = new MomentAccumulator(0);
+        var weighting = new TimeWeightedAccumulator<>(moments, kMaxInterval);
+        weighting.setEnabled(false);
+        window.setAccumulator(weighting);
+        double timestamp = 0;
+        for (int step = 0; step < 2000; step++) {
+            if (random.nextInt(4) != 0) timestamp += random.nextInt(5) == 0 ? 0.2 : 0.01;
+            window.add(timestamp, new double[]{random.nextGaussian()});
+
+            double mean = 0;
+            for (int k = 0; k < window.size(); k++) mean += window.get(k, 0);
+            mean /= window.size();
+            double sqErr = 0;
+            for (int k = 0; k < window.size(); k++) sqErr += (window.get(k, 0) - mean) * (window.get(k, 0) - mean);
+            assertEquals(window.size(), moments.getCount());
+            assertEquals(mean, moments.getMean(0), 1e-6);
+            assertEquals(Math.sqrt(sqErr / window.size()), moments.getStdDev(0), 1e-6);
+        }
+    }
+}
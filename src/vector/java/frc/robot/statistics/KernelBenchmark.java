@@ -0,0 +1,70 @@
+package frc.robot.statistics;
+
+import java.util.Random;
+
+// Compares the scalar and selected statistics kernels: ./gradlew benchmarkKernels
+public class KernelBenchmark {
+    // enough passes over the data for the JIT to fully compile both kernels
+    private static final long kWarmupSamples = 200_000_000;
+    private static final long kTimedSamples = 100_000_000;
+
+    private interface Pass {
+        double run(StatisticsKernels kernels, double[] values, double[] weights);
+    }
+
+    public static void main(String... args) {
+        var scalar = StatisticsKernels.scalar();
+        var selected = StatisticsKernels.get();
+        System.out.println("Selected kernels: " + selected.getName());
+
+        // the per-update rotation spread of PoseStatistics.calculate(), windows of 20 s at 30 to 100 fps and longer
+        System.out.println("Rotation spread (3 axes, as per pose update):");
+        run(scalar, selected, new int[]{600, 1000, 2000, 4096, 16384}, (kernels, values, weights) -> {
+            double sum = 0;
+            for (int axis = 0; axis < 3; axis++) sum += kernels.angleSqErrorSum(3.1 - axis, values, null, 0, values.length);
+            return sum;
+        });
+        System.out.println("Time-weighted rotation spread (3 axes):");
+        run(scalar, selected, new int[]{600, 1000, 2000, 4096, 16384}, (kernels, values, weights) -> {
+            double sum = 0;
+            for (int axis = 0; axis < 3; axis++) sum += kernels.angleSqErrorSum(3.1 - axis, values, weights, 0, values.length);
+            return sum;
+        });
+        // one average + squared error pass, as done by Statistics.findStdDev and NoiseAnalysis
+        System.out.println("Average and squared error:");
+        run(scalar, selected, new int[]{256, 1024, 4096, 16384, 65536}, (kernels, values, weights) -> {
+            double avg = kernels.sum(values, 0, values.length) / values.length;
+            return kernels.sqErrorSum(avg, values, 0, values.length);
+        });
+    }
+
+    private static void run(StatisticsKernels scalar, StatisticsKernels selected, int[] lengths, Pass pass) {
+        var random = new Random(1234);
+        for (int length : lengths) {
+            // angles around +-pi so both wraps are taken
+            double[] values = new double[length];
+            double[] weights = new double[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = Math.IEEEremainder(Math.PI + random.nextGaussian() * 0.05, 2 * Math.PI);
+                weights[i] = 0.02 + random.nextDouble() * 0.01;
+            }
+
+            double scalarNanos = time(scalar, values, weights, pass);
+            double selectedNanos = time(selected, values, weights, pass);
+            System.out.printf("%6d samples: scalar %8.1f ns, %s %8.1f ns, speedup %.2fx%n",
+                length, scalarNanos, selected.getName(), selectedNanos, scalarNanos / selectedNanos);
+        }
+    }
+
+    private static double time(StatisticsKernels kernels, double[] values, double[] weights, Pass pass) {
+        double sink = 0;
+        long warmupRounds = kWarmupSamples / values.length;
+        long rounds = kTimedSamples / values.length;
+        for (long r = 0; r < warmupRounds; r++) sink += pass.run(kernels, values, weights);
+        long start = System.nanoTime();
+        for (long r = 0; r < rounds; r++) sink += pass.run(kernels, values, weights);
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) System.out.println();
+        return (double)elapsed / rounds;
+    }
+}
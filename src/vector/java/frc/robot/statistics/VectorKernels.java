@@ -0,0 +1,86 @@
+package frc.robot.statistics;
+
+import edu.wpi.first.math.MathUtil;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Only loaded through StatisticsKernels when the jdk.incubator.vector module is available. Not part
+// of the robot jar, see the vector source set in build.gradle.
+class VectorKernels extends StatisticsKernels {
+    private static final VectorSpecies<Double> kSpecies = DoubleVector.SPECIES_PREFERRED;
+
+    VectorKernels() {
+        if (kSpecies.length() < 2) throw new UnsupportedOperationException("No SIMD double lanes");
+    }
+
+    @Override
+    String getName() {return "vector" + kSpecies.length();}
+
+    @Override
+    double sum(double[] values, int offset, int length) {
+        var acc = DoubleVector.zero(kSpecies);
+        int i = 0;
+        int bound = kSpecies.loopBound(length);
+        for (; i < bound; i += kSpecies.length()) {
+            acc = acc.add(DoubleVector.fromArray(kSpecies, values, offset + i));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) sum += values[offset + i];
+        return sum;
+    }
+
+    @Override
+    double sqErrorSum(double avg, double[] values, int offset, int length) {
+        var acc = DoubleVector.zero(kSpecies);
+        var avgVec = DoubleVector.broadcast(kSpecies, avg);
+        int i = 0;
+        int bound = kSpecies.loopBound(length);
+        for (; i < bound; i += kSpecies.length()) {
+            var diff = DoubleVector.fromArray(kSpecies, values, offset + i).sub(avgVec);
+            acc = diff.fma(diff, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            double diff = values[offset + i] - avg;
+            sum += diff*diff;
+        }
+        return sum;
+    }
+
+    // Angles within +-pi differ by at most 2 pi, so one masked +-2 pi wraps them. Blocks holding an
+    // angle outside +-pi (never from atan2/asin) take the scalar angleModulus instead.
+    @Override
+    double angleSqErrorSum(double avg, double[] values, double[] weights, int offset, int length) {
+        avg = MathUtil.angleModulus(avg);
+        var acc = DoubleVector.zero(kSpecies);
+        var avgVec = DoubleVector.broadcast(kSpecies, avg);
+        var pi = DoubleVector.broadcast(kSpecies, Math.PI);
+        var negPi = DoubleVector.broadcast(kSpecies, -Math.PI);
+        var twoPi = DoubleVector.broadcast(kSpecies, 2 * Math.PI);
+        double sum = 0;
+        int i = 0;
+        int bound = kSpecies.loopBound(length);
+        for (; i < bound; i += kSpecies.length()) {
+            var angles = DoubleVector.fromArray(kSpecies, values, offset + i);
+            if (angles.abs().compare(VectorOperators.GT, pi).anyTrue()) {
+                sum += scalarAngleSqErrorSum(avg, values, weights, offset + i, kSpecies.length());
+                continue;
+            }
+            var diff = angles.sub(avgVec);
+            diff = diff.sub(twoPi, diff.compare(VectorOperators.GT, pi)).add(twoPi, diff.compare(VectorOperators.LT, negPi));
+            if (weights == null) acc = diff.fma(diff, acc);
+            else acc = diff.mul(diff).fma(DoubleVector.fromArray(kSpecies, weights, offset + i), acc);
+        }
+        sum += acc.reduceLanes(VectorOperators.ADD);
+        return sum + scalarAngleSqErrorSum(avg, values, weights, offset + i, length - i);
+    }
+
+    private static double scalarAngleSqErrorSum(double avg, double[] values, double[] weights, int offset, int length) {
+        double sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += weights == null ? angleSqError(values[i], avg) : weights[i] * angleSqError(values[i], avg);
+        }
+        return sum;
+    }
+}